@@ -0,0 +1,155 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.programgraph.PGTransition;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ample-set selection for partial-order reduction of a channel system (Baier &amp; Katoen, ch. 8).
+ * The candidate ample set of a state is all the edges of one process at its current location. A
+ * location qualifies statically if each of its edges:
+ * <ul>
+ * <li>is not a channel operation,</li>
+ * <li>is independent of every edge of every other process: it writes no variable the others
+ * read or write, and reads no variable the others write,</li>
+ * <li>is invisible: it changes no visible variable and leaves or enters no visible location.</li>
+ * </ul>
+ * The cycle proviso is checked dynamically: an ample set that leads back onto the search stack
+ * is rejected.
+ * <p>
+ * Variables are found syntactically: every identifier of a condition or action is read, the
+ * left-hand sides of {@code :=} are written, and every identifier of a channel operation counts
+ * as written. This over-approximates, which only costs reduction.
+ */
+class AmpleSets<L, A> {
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Pattern ASSIGNED = Pattern.compile("([A-Za-z_][A-Za-z0-9_]*)\\s*:=");
+
+    private final ChannelSystemSemantics<L, A> semantics;
+    private final Set<String> visibleVariables = new HashSet<>();
+    private final Set<String> visibleLocations = new HashSet<>();
+    // Per process: variables read / written by the other processes.
+    private final List<Set<String>> othersRead = new ArrayList<>();
+    private final List<Set<String>> othersWritten = new ArrayList<>();
+    private final List<Map<L, Boolean>> reducible = new ArrayList<>();
+
+    AmpleSets(ChannelSystemSemantics<L, A> semantics, Set<String> visiblePropositions) {
+        this.semantics = semantics;
+        for (String ap : visiblePropositions) {
+            int eq = ap.indexOf(" = ");
+            if (eq >= 0) {
+                visibleVariables.add(ap.substring(0, eq));
+            }
+            visibleLocations.add(ap);
+        }
+
+        int n = semantics.processCount();
+        List<Set<String>> read = new ArrayList<>();
+        List<Set<String>> written = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Set<String> r = new HashSet<>();
+            Set<String> w = new HashSet<>();
+            for (PGTransition<L, A> t : semantics.programGraph(i).getTransitions()) {
+                r.addAll(reads(t));
+                w.addAll(writes(t));
+            }
+            read.add(r);
+            written.add(w);
+            reducible.add(new HashMap<>());
+        }
+        for (int i = 0; i < n; i++) {
+            Set<String> r = new HashSet<>();
+            Set<String> w = new HashSet<>();
+            for (int j = 0; j < n; j++) {
+                if (j != i) {
+                    r.addAll(read.get(j));
+                    w.addAll(written.get(j));
+                }
+            }
+            othersRead.add(r);
+            othersWritten.add(w);
+        }
+    }
+
+    /**
+     * The steps to explore from {@code state}: an ample set if one qualifies, otherwise all
+     * enabled steps.
+     *
+     * @param onStack whether a state is on the depth-first search stack
+     */
+    List<Transition<Pair<List<L>, Map<String, Object>>, A>> expand(Pair<List<L>, Map<String, Object>> state,
+                                                                   Predicate<Pair<List<L>, Map<String, Object>>> onStack) {
+        for (int i = 0; i < semantics.processCount(); i++) {
+            if (isReducible(i, state.getFirst().get(i))) {
+                List<Transition<Pair<List<L>, Map<String, Object>>, A>> ample = semantics.localSuccessors(state, i);
+                if (!ample.isEmpty() && ample.stream().noneMatch(t -> onStack.test(t.getTo()))) {
+                    return ample;
+                }
+            }
+        }
+        return semantics.successors(state);
+    }
+
+    private boolean isReducible(int process, L location) {
+        return reducible.get(process).computeIfAbsent(location, loc -> semantics.programGraph(process).getTransitions().stream()
+                .filter(t -> t.getFrom().equals(loc))
+                .allMatch(t -> isIndependentAndInvisible(process, t)));
+    }
+
+    private boolean isIndependentAndInvisible(int process, PGTransition<L, A> t) {
+        if (isChannelOperation(t)) {
+            return false;
+        }
+        Set<String> writes = writes(t);
+        if (!Collections.disjoint(writes, othersRead.get(process)) || !Collections.disjoint(writes, othersWritten.get(process))
+                || !Collections.disjoint(reads(t), othersWritten.get(process)) || !Collections.disjoint(writes, visibleVariables)) {
+            return false;
+        }
+        return t.getFrom().equals(t.getTo()) ||
+                !visibleLocations.contains(t.getFrom().toString()) && !visibleLocations.contains(t.getTo().toString());
+    }
+
+    private static boolean isChannelOperation(PGTransition<?, ?> t) {
+        String action = t.getAction().toString();
+        return action.contains("?") || action.contains("!");
+    }
+
+    private static Set<String> reads(PGTransition<?, ?> t) {
+        Set<String> result = identifiers(t.getCondition());
+        result.addAll(identifiers(t.getAction().toString()));
+        return result;
+    }
+
+    private static Set<String> writes(PGTransition<?, ?> t) {
+        String action = t.getAction().toString();
+        if (isChannelOperation(t)) {
+            return identifiers(action);
+        }
+        Set<String> result = new HashSet<>();
+        Matcher m = ASSIGNED.matcher(action);
+        while (m.find()) {
+            result.add(m.group(1));
+        }
+        return result;
+    }
+
+    private static Set<String> identifiers(String s) {
+        Set<String> result = new HashSet<>();
+        Matcher m = IDENTIFIER.matcher(s);
+        while (m.find()) {
+            result.add(m.group());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,285 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.automata.Automaton;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A language-preserving reduction of a Buchi automaton, and how much it removed.
+ * <p>
+ * States that are unreachable, or from which no accepting cycle is reachable, are pruned first.
+ * The rest are quotiented by direct-simulation equivalence, and a transition is dropped when
+ * the same source has a transition on the same letter to a state that strictly simulates its
+ * target. Both steps preserve the language; states left unreachable are pruned again.
+ * <p>
+ * {@code r} directly simulates {@code q} if {@code r} is accepting whenever {@code q} is, and
+ * every {@code a}-successor of {@code q} is simulated by some {@code a}-successor of {@code r}.
+ * The relation is computed as a greatest fixpoint, in O(n^2) bits.
+ */
+public final class AutomatonReduction<Q, L> {
+    private final Automaton<Q, L> automaton;
+    private final int originalStates;
+    private final int originalTransitions;
+    private final int reducedStates;
+    private final int reducedTransitions;
+
+    private AutomatonReduction(Automaton<Q, L> automaton, int originalStates, int originalTransitions,
+                               int reducedStates, int reducedTransitions) {
+        this.automaton = automaton;
+        this.originalStates = originalStates;
+        this.originalTransitions = originalTransitions;
+        this.reducedStates = reducedStates;
+        this.reducedTransitions = reducedTransitions;
+    }
+
+    static <Q, L> AutomatonReduction<Q, L> of(Automaton<Q, L> aut) {
+        Interner<Q> states = new Interner<>();
+        Interner<Set<L>> letters = new Interner<>();
+        BitSet initial = new BitSet();
+        BitSet accepting = new BitSet();
+        // Indexed by state id: letter id -> target ids.
+        List<Map<Integer, BitSet>> delta = new ArrayList<>();
+        int transitions = 0;
+
+        aut.getTransitions().keySet().forEach(q -> intern(states, delta, q));
+        aut.getInitialStates().forEach(q -> initial.set(intern(states, delta, q)));
+        aut.getAcceptingStates().forEach(q -> accepting.set(intern(states, delta, q)));
+        for (Map.Entry<Q, ? extends Map<Set<L>, ? extends Set<Q>>> outgoing : aut.getTransitions().entrySet()) {
+            int q = states.id(outgoing.getKey());
+            for (Map.Entry<Set<L>, ? extends Set<Q>> edge : outgoing.getValue().entrySet()) {
+                BitSet targets = delta.get(q).computeIfAbsent(letters.intern(edge.getKey()), a -> new BitSet());
+                for (Q to : edge.getValue()) {
+                    targets.set(intern(states, delta, to));
+                    transitions++;
+                }
+            }
+        }
+        int n = states.size();
+
+        BitSet live = live(delta, initial, accepting, n);
+        restrict(delta, live);
+        BitSet[] simulators = simulation(delta, accepting, live, n);
+
+        // Quotient: each state is represented by the least state it is simulation-equivalent to.
+        int[] representative = new int[n];
+        for (int q = live.nextSetBit(0); q >= 0; q = live.nextSetBit(q + 1)) {
+            int r = simulators[q].nextSetBit(0);
+            while (!simulators[r].get(q)) {
+                r = simulators[q].nextSetBit(r + 1);
+            }
+            representative[q] = r;
+        }
+        List<Map<Integer, BitSet>> quotient = new ArrayList<>();
+        for (int q = 0; q < n; q++) {
+            quotient.add(new HashMap<>());
+        }
+        for (int q = live.nextSetBit(0); q >= 0; q = live.nextSetBit(q + 1)) {
+            Map<Integer, BitSet> outgoing = quotient.get(representative[q]);
+            delta.get(q).forEach((a, targets) -> {
+                BitSet mapped = outgoing.computeIfAbsent(a, x -> new BitSet());
+                targets.stream().forEach(t -> mapped.set(representative[t]));
+            });
+        }
+        // Drop transitions to a target that a sibling target strictly simulates.
+        for (Map<Integer, BitSet> outgoing : quotient) {
+            for (BitSet targets : outgoing.values()) {
+                BitSet dominated = new BitSet();
+                for (int t = targets.nextSetBit(0); t >= 0; t = targets.nextSetBit(t + 1)) {
+                    BitSet stronger = (BitSet) simulators[t].clone();
+                    stronger.and(targets);
+                    for (int u = stronger.nextSetBit(0); u >= 0; u = stronger.nextSetBit(u + 1)) {
+                        if (!simulators[u].get(t)) {
+                            dominated.set(t);
+                            break;
+                        }
+                    }
+                }
+                targets.andNot(dominated);
+            }
+        }
+
+        BitSet quotientInitial = new BitSet();
+        live.stream().filter(initial::get).forEach(q -> quotientInitial.set(representative[q]));
+        BitSet kept = live(quotient, quotientInitial, accepting, n);
+
+        Automaton<Q, L> result = new Automaton<>();
+        int keptTransitions = 0;
+        for (int q = kept.nextSetBit(0); q >= 0; q = kept.nextSetBit(q + 1)) {
+            Q state = states.value(q);
+            result.addState(state);
+            if (quotientInitial.get(q)) {
+                result.setInitial(state);
+            }
+            if (accepting.get(q)) {
+                result.setAccepting(state);
+            }
+            for (Map.Entry<Integer, BitSet> edge : quotient.get(q).entrySet()) {
+                for (int t = edge.getValue().nextSetBit(0); t >= 0; t = edge.getValue().nextSetBit(t + 1)) {
+                    if (kept.get(t)) {
+                        result.addTransition(state, letters.value(edge.getKey()), states.value(t));
+                        keptTransitions++;
+                    }
+                }
+            }
+        }
+        return new AutomatonReduction<>(result, n, transitions, kept.cardinality(), keptTransitions);
+    }
+
+    public Automaton<Q, L> getAutomaton() {
+        return automaton;
+    }
+
+    public int getOriginalStates() {
+        return originalStates;
+    }
+
+    public int getOriginalTransitions() {
+        return originalTransitions;
+    }
+
+    public int getReducedStates() {
+        return reducedStates;
+    }
+
+    public int getReducedTransitions() {
+        return reducedTransitions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d -> %d states, %d -> %d transitions",
+                originalStates, reducedStates, originalTransitions, reducedTransitions);
+    }
+
+    private static <Q> int intern(Interner<Q> states, List<Map<Integer, BitSet>> delta, Q q) {
+        int id = states.intern(q);
+        if (id == delta.size()) {
+            delta.add(new HashMap<>());
+        }
+        return id;
+    }
+
+    /**
+     * @return the states reachable from {@code initial} from which an accepting state on a
+     * cycle is reachable.
+     */
+    private static BitSet live(List<Map<Integer, BitSet>> delta, BitSet initial, BitSet accepting, int n) {
+        BitSet reachable = forward(delta, initial);
+
+        BitSet onCycle = new BitSet();
+        for (int q = accepting.nextSetBit(0); q >= 0; q = accepting.nextSetBit(q + 1)) {
+            if (reachable.get(q)) {
+                BitSet from = new BitSet();
+                delta.get(q).values().forEach(from::or);
+                if (forward(delta, from).get(q)) {
+                    onCycle.set(q);
+                }
+            }
+        }
+
+        // Backwards from the accepting cycles, within the reachable states.
+        List<IntList> predecessors = new ArrayList<>();
+        for (int q = 0; q < n; q++) {
+            predecessors.add(new IntList());
+        }
+        for (int q = reachable.nextSetBit(0); q >= 0; q = reachable.nextSetBit(q + 1)) {
+            int from = q;
+            delta.get(q).values().forEach(targets -> targets.stream().forEach(t -> predecessors.get(t).add(from)));
+        }
+        BitSet live = (BitSet) onCycle.clone();
+        IntList queue = new IntList();
+        onCycle.stream().forEach(queue::add);
+        for (int head = 0; head < queue.size(); head++) {
+            IntList pre = predecessors.get(queue.get(head));
+            for (int i = 0; i < pre.size(); i++) {
+                int p = pre.get(i);
+                if (!live.get(p)) {
+                    live.set(p);
+                    queue.add(p);
+                }
+            }
+        }
+        live.and(reachable);
+        return live;
+    }
+
+    private static BitSet forward(List<Map<Integer, BitSet>> delta, BitSet from) {
+        BitSet visited = (BitSet) from.clone();
+        IntList queue = new IntList();
+        from.stream().forEach(queue::add);
+        for (int head = 0; head < queue.size(); head++) {
+            for (BitSet targets : delta.get(queue.get(head)).values()) {
+                for (int t = targets.nextSetBit(0); t >= 0; t = targets.nextSetBit(t + 1)) {
+                    if (!visited.get(t)) {
+                        visited.set(t);
+                        queue.add(t);
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Removes transitions into, and out of, states outside {@code live}.
+     */
+    private static void restrict(List<Map<Integer, BitSet>> delta, BitSet live) {
+        for (int q = 0; q < delta.size(); q++) {
+            if (!live.get(q)) {
+                delta.get(q).clear();
+            } else {
+                delta.get(q).values().forEach(targets -> targets.and(live));
+                delta.get(q).values().removeIf(BitSet::isEmpty);
+            }
+        }
+    }
+
+    /**
+     * @return for every live state {@code q}, the live states that directly simulate it.
+     */
+    private static BitSet[] simulation(List<Map<Integer, BitSet>> delta, BitSet accepting, BitSet live, int n) {
+        BitSet[] simulators = new BitSet[n];
+        for (int q = live.nextSetBit(0); q >= 0; q = live.nextSetBit(q + 1)) {
+            simulators[q] = (BitSet) live.clone();
+            if (accepting.get(q)) {
+                simulators[q].and(accepting);
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int q = live.nextSetBit(0); q >= 0; q = live.nextSetBit(q + 1)) {
+                for (int r = simulators[q].nextSetBit(0); r >= 0; r = simulators[q].nextSetBit(r + 1)) {
+                    if (r != q && !simulates(delta, simulators, r, q)) {
+                        simulators[q].clear(r);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return simulators;
+    }
+
+    private static boolean simulates(List<Map<Integer, BitSet>> delta, BitSet[] simulators, int r, int q) {
+        Map<Integer, BitSet> rOut = delta.get(r);
+        for (Map.Entry<Integer, BitSet> edge : delta.get(q).entrySet()) {
+            BitSet rTargets = rOut.get(edge.getKey());
+            if (rTargets == null) {
+                return false;
+            }
+            BitSet qTargets = edge.getValue();
+            for (int t = qTargets.nextSetBit(0); t >= 0; t = qTargets.nextSetBit(t + 1)) {
+                if (!rTargets.intersects(simulators[t])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
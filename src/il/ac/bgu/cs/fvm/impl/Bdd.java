@@ -0,0 +1,522 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A reduced ordered binary decision diagram package. Nodes are {@code int} handles into flat
+ * arrays; {@link #FALSE} and {@link #TRUE} are the terminals and variable {@code i} is tested at
+ * level {@code i}.
+ * <p>
+ * Nodes are hash-consed through a unique table, so equal functions have equal handles, and
+ * operation results are memoized in a direct-mapped cache. Garbage collection is mark-and-sweep
+ * from the nodes protected by {@link #ref}; it only runs on entry to a public operation, where
+ * the operands are protected too. A result must therefore be {@link #ref}'d if it is still used
+ * after a later operation that does not take it as an operand.
+ */
+class Bdd {
+    static final int FALSE = 0;
+    static final int TRUE = 1;
+
+    private static final int OP_AND = 0;
+    private static final int OP_OR = 1;
+    private static final int OP_XOR = 2;
+    private static final int OP_ITE = 3;
+    private static final int OP_EXISTS = 4;
+    private static final int OP_REL_PROD = 5;
+    private static final int OP_REPLACE = 6;
+
+    private final int varCount;
+    private int[] level;
+    private int[] low;
+    private int[] high;
+    private int[] next;
+    private int[] refs;
+    private int[] buckets;
+    private int free;
+    private int used;
+
+    private final int[] cacheKey;
+    private final int[] cacheA;
+    private final int[] cacheB;
+    private final int[] cacheC;
+    private final int[] cacheResult;
+    private final int cacheMask;
+    // Bumped per replace() call, so replacements with different maps do not share cache entries.
+    private int replaceId;
+    private int[] replaceMap;
+
+    Bdd(int varCount) {
+        this(varCount, 1 << 16, 1 << 16);
+    }
+
+    Bdd(int varCount, int initialNodes, int cacheSize) {
+        this.varCount = varCount;
+        allocate(Math.max(initialNodes, 16));
+        cacheMask = Integer.highestOneBit(Math.max(cacheSize, 16)) - 1;
+        cacheKey = new int[cacheMask + 1];
+        cacheA = new int[cacheMask + 1];
+        cacheB = new int[cacheMask + 1];
+        cacheC = new int[cacheMask + 1];
+        cacheResult = new int[cacheMask + 1];
+        Arrays.fill(cacheKey, -1);
+    }
+
+    int varCount() {
+        return varCount;
+    }
+
+    /**
+     * @return the number of nodes in the table, live or not yet collected, terminals included.
+     */
+    int nodeCount() {
+        return used;
+    }
+
+    /**
+     * @return the number of decision nodes of {@code f}, terminals excluded.
+     */
+    int size(int f) {
+        boolean[] marked = new boolean[level.length];
+        marked[FALSE] = marked[TRUE] = true;
+        mark(f, marked);
+        int count = 0;
+        for (int g = 2; g < marked.length; g++) {
+            if (marked[g]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    int ref(int f) {
+        refs[f]++;
+        return f;
+    }
+
+    void deref(int f) {
+        refs[f]--;
+    }
+
+    int var(int v) {
+        return mk(v, FALSE, TRUE);
+    }
+
+    int nvar(int v) {
+        return mk(v, TRUE, FALSE);
+    }
+
+    int not(int f) {
+        return xor(f, TRUE);
+    }
+
+    int and(int f, int g) {
+        maybeGc(f, g);
+        return apply(OP_AND, f, g);
+    }
+
+    int or(int f, int g) {
+        maybeGc(f, g);
+        return apply(OP_OR, f, g);
+    }
+
+    int xor(int f, int g) {
+        maybeGc(f, g);
+        return apply(OP_XOR, f, g);
+    }
+
+    int biimp(int f, int g) {
+        return not(xor(f, g));
+    }
+
+    int ite(int f, int g, int h) {
+        maybeGc(f, g, h);
+        return iteRec(f, g, h);
+    }
+
+    /**
+     * @return the conjunction of the given variables, for use as a quantification cube.
+     */
+    int cube(int... vars) {
+        int[] sorted = vars.clone();
+        Arrays.sort(sorted);
+        int result = TRUE;
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            result = mk(sorted[i], FALSE, result);
+        }
+        return result;
+    }
+
+    /**
+     * Existential quantification of the variables of {@code cube}.
+     */
+    int exists(int f, int cube) {
+        maybeGc(f, cube);
+        return existsRec(f, cube);
+    }
+
+    /**
+     * {@code exists(and(f, g), cube)}, without building the conjunction.
+     */
+    int relProd(int f, int g, int cube) {
+        maybeGc(f, g, cube);
+        return relProdRec(f, g, cube);
+    }
+
+    /**
+     * Renames every variable {@code v} of {@code f} to {@code map[v]}.
+     */
+    int replace(int f, int[] map) {
+        maybeGc(f);
+        replaceId++;
+        replaceMap = map;
+        return replaceRec(f);
+    }
+
+    /**
+     * @return the number of assignments to the variables of {@code cube} satisfying {@code f},
+     * which must not depend on other variables.
+     */
+    double satCount(int f, int cube) {
+        int[] vars = new int[varCount];
+        int n = 0;
+        for (int c = cube; c != TRUE; c = high[c]) {
+            vars[n++] = level[c];
+        }
+        return satCountRec(f, Arrays.copyOf(vars, n), 0, new HashMap<>());
+    }
+
+    /**
+     * @return a satisfying assignment of {@code f}, as the value (0/1) of every variable it
+     * depends on and -1 for the others, or {@code null} if {@code f} is {@link #FALSE}.
+     */
+    int[] satOne(int f) {
+        if (f == FALSE) {
+            return null;
+        }
+        int[] result = new int[varCount];
+        Arrays.fill(result, -1);
+        while (f != TRUE) {
+            if (low[f] != FALSE) {
+                result[level[f]] = 0;
+                f = low[f];
+            } else {
+                result[level[f]] = 1;
+                f = high[f];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calls {@code action} with every assignment to {@code vars}, given in increasing order,
+     * that satisfies {@code f}; {@code f} must not depend on other variables. The array passed
+     * to {@code action} is reused, and {@code action} must not run operations on this package.
+     */
+    void forEachSat(int f, int[] vars, Consumer<boolean[]> action) {
+        forEachSatRec(f, vars, 0, new boolean[vars.length], action);
+    }
+
+    /**
+     * Collects every node not reachable from a {@link #ref}'d node.
+     */
+    void gc() {
+        gc(new int[0]);
+    }
+
+    private void maybeGc(int... operands) {
+        if (free < 0 && used > level.length * 3 / 4) {
+            gc(operands);
+        }
+    }
+
+    private void gc(int[] operands) {
+        boolean[] marked = new boolean[level.length];
+        marked[FALSE] = marked[TRUE] = true;
+        for (int f = 2; f < level.length; f++) {
+            if (refs[f] > 0) {
+                mark(f, marked);
+            }
+        }
+        for (int f : operands) {
+            mark(f, marked);
+        }
+
+        Arrays.fill(buckets, -1);
+        free = -1;
+        used = 2;
+        for (int f = level.length - 1; f >= 2; f--) {
+            if (marked[f]) {
+                int b = bucket(level[f], low[f], high[f]);
+                next[f] = buckets[b];
+                buckets[b] = f;
+                used++;
+            } else {
+                level[f] = -1;
+                next[f] = free;
+                free = f;
+            }
+        }
+        Arrays.fill(cacheKey, -1);
+        if (used > level.length * 3 / 4) {
+            grow();
+        }
+    }
+
+    private void mark(int f, boolean[] marked) {
+        while (!marked[f]) {
+            marked[f] = true;
+            mark(low[f], marked);
+            f = high[f];
+        }
+    }
+
+    private int mk(int v, int lo, int hi) {
+        if (lo == hi) {
+            return lo;
+        }
+        int b = bucket(v, lo, hi);
+        for (int f = buckets[b]; f >= 0; f = next[f]) {
+            if (level[f] == v && low[f] == lo && high[f] == hi) {
+                return f;
+            }
+        }
+        if (free < 0) {
+            grow();
+            b = bucket(v, lo, hi);
+        }
+        int f = free;
+        free = next[f];
+        level[f] = v;
+        low[f] = lo;
+        high[f] = hi;
+        refs[f] = 0;
+        next[f] = buckets[b];
+        buckets[b] = f;
+        used++;
+        return f;
+    }
+
+    private int apply(int op, int f, int g) {
+        switch (op) {
+            case OP_AND:
+                if (f == FALSE || g == FALSE) return FALSE;
+                if (f == TRUE) return g;
+                if (g == TRUE || f == g) return f;
+                break;
+            case OP_OR:
+                if (f == TRUE || g == TRUE) return TRUE;
+                if (f == FALSE) return g;
+                if (g == FALSE || f == g) return f;
+                break;
+            default:
+                if (f == g) return FALSE;
+                if (f == FALSE) return g;
+                if (g == FALSE) return f;
+                if (f == TRUE && g == TRUE) return FALSE;
+        }
+        if (f > g) {
+            int t = f;
+            f = g;
+            g = t;
+        }
+        int slot = lookup(op, f, g, 0);
+        if (slot < 0) {
+            return cacheResult[~slot];
+        }
+        int v = Math.min(level[f], level[g]);
+        int result = mk(v,
+                apply(op, level[f] == v ? low[f] : f, level[g] == v ? low[g] : g),
+                apply(op, level[f] == v ? high[f] : f, level[g] == v ? high[g] : g));
+        return store(slot, op, f, g, 0, result);
+    }
+
+    private int iteRec(int f, int g, int h) {
+        if (f == TRUE) return g;
+        if (f == FALSE) return h;
+        if (g == h) return g;
+        if (g == TRUE && h == FALSE) return f;
+        int slot = lookup(OP_ITE, f, g, h);
+        if (slot < 0) {
+            return cacheResult[~slot];
+        }
+        int v = Math.min(level[f], Math.min(level[g], level[h]));
+        int result = mk(v,
+                iteRec(cofactor(f, v, false), cofactor(g, v, false), cofactor(h, v, false)),
+                iteRec(cofactor(f, v, true), cofactor(g, v, true), cofactor(h, v, true)));
+        return store(slot, OP_ITE, f, g, h, result);
+    }
+
+    private int existsRec(int f, int cube) {
+        while (cube != TRUE && level[cube] < level[f]) {
+            cube = high[cube];
+        }
+        if (f <= TRUE || cube == TRUE) {
+            return f;
+        }
+        int slot = lookup(OP_EXISTS, f, cube, 0);
+        if (slot < 0) {
+            return cacheResult[~slot];
+        }
+        int lo = existsRec(low[f], cube);
+        int result;
+        if (level[f] == level[cube]) {
+            result = lo == TRUE ? TRUE : apply(OP_OR, lo, existsRec(high[f], cube));
+        } else {
+            result = mk(level[f], lo, existsRec(high[f], cube));
+        }
+        return store(slot, OP_EXISTS, f, cube, 0, result);
+    }
+
+    private int relProdRec(int f, int g, int cube) {
+        if (f == FALSE || g == FALSE) return FALSE;
+        if (f == TRUE && g == TRUE) return TRUE;
+        if (f == TRUE || f == g) return existsRec(g, cube);
+        if (g == TRUE) return existsRec(f, cube);
+        if (f > g) {
+            int t = f;
+            f = g;
+            g = t;
+        }
+        int v = Math.min(level[f], level[g]);
+        while (cube != TRUE && level[cube] < v) {
+            cube = high[cube];
+        }
+        int slot = lookup(OP_REL_PROD, f, g, cube);
+        if (slot < 0) {
+            return cacheResult[~slot];
+        }
+        int lo = relProdRec(cofactor(f, v, false), cofactor(g, v, false), cube);
+        int result;
+        if (cube != TRUE && level[cube] == v) {
+            result = lo == TRUE ? TRUE : apply(OP_OR, lo, relProdRec(cofactor(f, v, true), cofactor(g, v, true), cube));
+        } else {
+            result = mk(v, lo, relProdRec(cofactor(f, v, true), cofactor(g, v, true), cube));
+        }
+        return store(slot, OP_REL_PROD, f, g, cube, result);
+    }
+
+    private int replaceRec(int f) {
+        if (f <= TRUE) {
+            return f;
+        }
+        int slot = lookup(OP_REPLACE, f, replaceId, 0);
+        if (slot < 0) {
+            return cacheResult[~slot];
+        }
+        int v = mk(replaceMap[level[f]], FALSE, TRUE);
+        int result = iteRec(v, replaceRec(high[f]), replaceRec(low[f]));
+        return store(slot, OP_REPLACE, f, replaceId, 0, result);
+    }
+
+    private double satCountRec(int f, int[] vars, int index, Map<Long, Double> memo) {
+        if (f == FALSE) {
+            return 0;
+        }
+        if (index == vars.length) {
+            return 1;
+        }
+        long key = (long) f << 32 | index;
+        Double cached = memo.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        double result;
+        if (f != TRUE && level[f] == vars[index]) {
+            result = satCountRec(low[f], vars, index + 1, memo) + satCountRec(high[f], vars, index + 1, memo);
+        } else {
+            result = 2 * satCountRec(f, vars, index + 1, memo);
+        }
+        memo.put(key, result);
+        return result;
+    }
+
+    private void forEachSatRec(int f, int[] vars, int index, boolean[] values, Consumer<boolean[]> action) {
+        if (f == FALSE) {
+            return;
+        }
+        if (index == vars.length) {
+            action.accept(values);
+            return;
+        }
+        boolean tested = level[f] == vars[index];
+        values[index] = false;
+        forEachSatRec(tested ? low[f] : f, vars, index + 1, values, action);
+        values[index] = true;
+        forEachSatRec(tested ? high[f] : f, vars, index + 1, values, action);
+    }
+
+    private int cofactor(int f, int v, boolean value) {
+        return level[f] != v ? f : value ? high[f] : low[f];
+    }
+
+    /**
+     * @return {@code ~slot} on a hit, otherwise the slot to store the result in.
+     */
+    private int lookup(int op, int a, int b, int c) {
+        int h = ((op * 0x9E3779B1 + a) * 0x85EBCA77 + b) * 0xC2B2AE3D + c;
+        int slot = (h ^ h >>> 16) & cacheMask;
+        if (cacheKey[slot] == op && cacheA[slot] == a && cacheB[slot] == b && cacheC[slot] == c) {
+            return ~slot;
+        }
+        return slot;
+    }
+
+    private int store(int slot, int op, int a, int b, int c, int result) {
+        cacheKey[slot] = op;
+        cacheA[slot] = a;
+        cacheB[slot] = b;
+        cacheC[slot] = c;
+        cacheResult[slot] = result;
+        return result;
+    }
+
+    private int bucket(int v, int lo, int hi) {
+        int h = (v * 0x9E3779B1 + lo) * 0x85EBCA77 + hi;
+        return (h ^ h >>> 15) & (buckets.length - 1);
+    }
+
+    private void allocate(int capacity) {
+        level = new int[capacity];
+        low = new int[capacity];
+        high = new int[capacity];
+        next = new int[capacity];
+        refs = new int[capacity];
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        level[FALSE] = level[TRUE] = varCount;
+        free = -1;
+        for (int f = capacity - 1; f >= 2; f--) {
+            level[f] = -1;
+            next[f] = free;
+            free = f;
+        }
+        used = 2;
+    }
+
+    private void grow() {
+        int oldCapacity = level.length;
+        int capacity = oldCapacity * 2;
+        level = Arrays.copyOf(level, capacity);
+        low = Arrays.copyOf(low, capacity);
+        high = Arrays.copyOf(high, capacity);
+        next = Arrays.copyOf(next, capacity);
+        refs = Arrays.copyOf(refs, capacity);
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        for (int f = 2; f < oldCapacity; f++) {
+            if (level[f] >= 0) {
+                int b = bucket(level[f], low[f], high[f]);
+                next[f] = buckets[b];
+                buckets[b] = f;
+            }
+        }
+        for (int f = capacity - 1; f >= oldCapacity; f--) {
+            level[f] = -1;
+            next[f] = free;
+            free = f;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The coarsest bisimulation of a transition system's states that respects their labels, by
+ * signature-based partition refinement: states start in one block per label, and each round
+ * splits blocks by the set of blocks their successors are in, until no block splits. Actions
+ * are ignored, as in state-based (LTL) semantics.
+ */
+final class Bisimulation {
+
+    private Bisimulation() {
+    }
+
+    /**
+     * Fills {@code result} with the quotient of {@code ts}: one state per bisimulation class,
+     * represented by one of its members, with an edge between classes for every edge between
+     * their members. Actions and atomic propositions are copied as they are.
+     */
+    static <S, A, P> void quotient(TransitionSystem<S, A, P> ts, TransitionSystem<S, A, P> result) {
+        Interner<S> states = new Interner<>();
+        ts.getStates().forEach(states::intern);
+        int n = states.size();
+        List<IntList> successors = new ArrayList<>(n);
+        for (int s = 0; s < n; s++) {
+            successors.add(new IntList());
+        }
+        for (Transition<S, A> t : ts.getTransitions()) {
+            successors.get(states.id(t.getFrom())).add(states.id(t.getTo()));
+        }
+
+        Interner<Set<P>> labels = new Interner<>();
+        int[] blocks = new int[n];
+        for (int s = 0; s < n; s++) {
+            blocks[s] = labels.intern(ts.getLabel(states.value(s)));
+        }
+        int count = labels.size();
+        while (true) {
+            Map<Signature, Integer> refined = new HashMap<>();
+            int[] next = new int[n];
+            for (int s = 0; s < n; s++) {
+                Signature signature = new Signature(blocks[s], successors.get(s), blocks);
+                Integer block = refined.get(signature);
+                if (block == null) {
+                    block = refined.size();
+                    refined.put(signature, block);
+                }
+                next[s] = block;
+            }
+            blocks = next;
+            // Refinement never merges blocks, so an equal count means nothing split.
+            if (refined.size() == count) {
+                break;
+            }
+            count = refined.size();
+        }
+
+        S[] representatives = newArray(count);
+        for (int s = 0; s < n; s++) {
+            if (representatives[blocks[s]] == null) {
+                representatives[blocks[s]] = states.value(s);
+            }
+        }
+
+        result.setName(ts.getName());
+        ts.getActions().forEach(result::addAction);
+        ts.getAtomicPropositions().forEach(result::addAtomicProposition);
+        for (S r : representatives) {
+            result.addState(r);
+            ts.getLabel(r).forEach(p -> result.addToLabel(r, p));
+        }
+        for (S s : ts.getInitialStates()) {
+            result.addInitialState(representatives[blocks[states.id(s)]]);
+        }
+        for (Transition<S, A> t : ts.getTransitions()) {
+            result.addTransition(new Transition<>(representatives[blocks[states.id(t.getFrom())]], t.getAction(),
+                    representatives[blocks[states.id(t.getTo())]]));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> S[] newArray(int size) {
+        return (S[]) new Object[size];
+    }
+
+    /**
+     * A state's block together with the sorted, distinct blocks of its successors.
+     */
+    private static final class Signature {
+        private final int[] values;
+        private final int hash;
+
+        Signature(int block, IntList successors, int[] blocks) {
+            int[] targets = new int[successors.size()];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = blocks[successors.get(i)];
+            }
+            Arrays.sort(targets);
+            int[] values = new int[targets.length + 1];
+            values[0] = block;
+            int size = 1;
+            for (int i = 0; i < targets.length; i++) {
+                if (i == 0 || targets[i] != targets[i - 1]) {
+                    values[size++] = targets[i];
+                }
+            }
+            this.values = Arrays.copyOf(values, size);
+            this.hash = Arrays.hashCode(this.values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature && Arrays.equals(values, ((Signature) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
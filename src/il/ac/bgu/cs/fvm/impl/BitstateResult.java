@@ -0,0 +1,54 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.verification.VerificationResult;
+
+/**
+ * The outcome of a bitstate (supertrace) search. A failure is a real counterexample; a success
+ * only means none was found among the states the search did not prune, which
+ * {@link #getCoverage()} and {@link #getCollisionProbability()} quantify.
+ */
+public class BitstateResult<S> {
+    private final VerificationResult<S> result;
+    private final long storedStates;
+    private final double coverage;
+    private final double collisionProbability;
+
+    BitstateResult(VerificationResult<S> result, long storedStates, double coverage, double collisionProbability) {
+        this.result = result;
+        this.storedStates = storedStates;
+        this.coverage = coverage;
+        this.collisionProbability = collisionProbability;
+    }
+
+    public VerificationResult<S> getResult() {
+        return result;
+    }
+
+    /**
+     * @return the number of distinct states (product states for LTL) the search stored.
+     */
+    public long getStoredStates() {
+        return storedStates;
+    }
+
+    /**
+     * @return the estimated fraction of the reachable states the search explored.
+     */
+    public double getCoverage() {
+        return coverage;
+    }
+
+    /**
+     * @return the probability, at the end of the search, that a new state would be wrongly
+     * pruned as already visited.
+     */
+    public double getCollisionProbability() {
+        return collisionProbability;
+    }
+
+    @Override
+    public String toString() {
+        return result + String.format(" (%d states stored, coverage ~%.4f, collision probability %.2e)",
+                storedStates, coverage, collisionProbability);
+    }
+}
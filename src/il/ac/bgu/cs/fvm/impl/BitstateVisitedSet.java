@@ -0,0 +1,121 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bitstate hashing (Holzmann's supertrace): a visited set of {@code 2^log2Bits} bits where a
+ * state is represented by {@code k} bit positions derived from a 64-bit fingerprint, and counts
+ * as visited when all of them are set. Memory is fixed regardless of the number of states; the
+ * price is that a new state whose bits happen to be set already is wrongly pruned.
+ */
+class BitstateVisitedSet<N> implements VisitedSet<N> {
+    private final long[] bits;
+    private final long mask;
+    private final int hashes;
+    private final long seed;
+    private final ToLongFunction<? super N> fingerprint;
+    private long bitsSet;
+    private long size;
+    private double expectedOmissions;
+
+    BitstateVisitedSet(int log2Bits, int hashes, long seed) {
+        this(log2Bits, hashes, seed, BitstateVisitedSet::fingerprint);
+    }
+
+    BitstateVisitedSet(int log2Bits, int hashes, long seed, ToLongFunction<? super N> fingerprint) {
+        if (log2Bits < 6 || log2Bits > 36 || hashes < 1) {
+            throw new IllegalArgumentException("Need 6 <= log2Bits <= 36 and at least one hash function");
+        }
+        this.bits = new long[1 << (log2Bits - 6)];
+        this.mask = (1L << log2Bits) - 1;
+        this.hashes = hashes;
+        this.seed = seed;
+        this.fingerprint = fingerprint;
+    }
+
+    @Override
+    public boolean add(N node) {
+        long f = mix(fingerprint.applyAsLong(node) ^ seed);
+        long h1 = f;
+        long h2 = mix(f) | 1;
+        boolean added = false;
+        double pruneProbability = Math.pow(fillRatio(), hashes);
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & mask;
+            int word = (int) (bit >>> 6);
+            long m = 1L << bit;
+            if ((bits[word] & m) == 0) {
+                bits[word] |= m;
+                bitsSet++;
+                added = true;
+            }
+        }
+        if (added) {
+            size++;
+            // Each stored state stands for 1 / (1 - p) new states met, the rest having been pruned.
+            expectedOmissions += pruneProbability / (1 - pruneProbability);
+        }
+        return added;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    double fillRatio() {
+        return (double) bitsSet / (mask + 1);
+    }
+
+    /**
+     * @return the probability that a new state is wrongly reported as visited,
+     * {@code (1 - e^(-kn/m))^k} for {@code n} stored states.
+     */
+    double collisionProbability() {
+        return Math.pow(1 - Math.exp(-(double) hashes * size / (mask + 1)), hashes);
+    }
+
+    /**
+     * @return the estimated fraction of the new states met by the search that were stored.
+     */
+    double coverage() {
+        return size == 0 ? 1 : size / (size + expectedOmissions);
+    }
+
+    /**
+     * A 64-bit fingerprint; pairs, lists and maps are fingerprinted by their components, so it
+     * carries more than the 32 bits of {@link Object#hashCode()}, and does not inherit the
+     * collisions of {@link Map#hashCode()} (e.g. between {x=0, y=1} and {x=1, y=0}).
+     */
+    static long fingerprint(Object o) {
+        if (o instanceof Pair) {
+            Pair<?, ?> p = (Pair<?, ?>) o;
+            return mix(fingerprint(p.getFirst())) * 31 + fingerprint(p.getSecond());
+        }
+        if (o instanceof List) {
+            long f = 1;
+            for (Object e : (List<?>) o) {
+                f = mix(f) * 31 + fingerprint(e);
+            }
+            return f;
+        }
+        if (o instanceof Map) {
+            long f = 0;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) o).entrySet()) {
+                f += mix(fingerprint(e.getKey()) * 31 + fingerprint(e.getValue()));
+            }
+            return f;
+        }
+        return o == null ? 0 : mix(o.hashCode());
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
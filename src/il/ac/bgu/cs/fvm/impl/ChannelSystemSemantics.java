@@ -0,0 +1,219 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.channelsystem.ChannelSystem;
+import il.ac.bgu.cs.fvm.channelsystem.ParserBasedInterleavingActDef;
+import il.ac.bgu.cs.fvm.programgraph.PGTransition;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The transition relation of a channel system: states are location vectors with an
+ * evaluation, steps are local (non-channel) steps of one process and handshakes between two.
+ * Used by {@link FvmFacadeImpl#transitionSystemFromChannelSystem} and its reduced variant.
+ */
+class ChannelSystemSemantics<L, A> {
+    private static final Pattern CHANNEL_OPERATION = Pattern.compile("\\s*([A-Za-z_][A-Za-z0-9_]*)\\s*([!?])");
+
+    private final List<ProgramGraph<L, A>> pgs;
+    private final List<ProgramGraphIndex<L, A>> indexes;
+    private final EvaluationTable evaluations = new EvaluationTable();
+    private final ParserBasedActDef ad = new ParserBasedActDef();
+    private final ParserBasedInterleavingActDef iad = new ParserBasedInterleavingActDef();
+    private final ExpressionCache<Boolean> conditions;
+    private final ExpressionCache<Evaluation> effects;
+    private final ExpressionCache<Evaluation> handShakeEffects;
+    // Per process: the channel operations leaving each location.
+    private final List<Map<L, List<ChannelOperation<L, A>>>> channelOperations = new ArrayList<>();
+    private final Map<Pair<A, A>, Optional<A>> synchronisations = new HashMap<>();
+
+    ChannelSystemSemantics(ChannelSystem<L, A> cs) {
+        this.pgs = cs.getProgramGraphs();
+        this.indexes = pgs.stream()
+                .map(pg -> new ProgramGraphIndex<>(pg, Collections.emptySet()))
+                .collect(Collectors.toList());
+        ParserBasedCondDef cd = new ParserBasedCondDef();
+        this.conditions = new ExpressionCache<>((condition, e) -> cd.evaluate(e, (String) condition));
+        this.effects = new ExpressionCache<>((action, e) -> evaluations.intern(ad.effect(e, action)));
+        this.handShakeEffects = new ExpressionCache<>((action, e) -> evaluations.intern(iad.effect(e, action)));
+
+        for (ProgramGraph<L, A> pg : pgs) {
+            Map<L, List<ChannelOperation<L, A>>> operations = new HashMap<>();
+            for (PGTransition<L, A> t : pg.getTransitions()) {
+                Matcher m = CHANNEL_OPERATION.matcher(t.getAction().toString());
+                if (m.lookingAt()) {
+                    operations.computeIfAbsent(t.getFrom(), l -> new ArrayList<>())
+                            .add(new ChannelOperation<>(t, m.group(1), m.group(2).equals("!")));
+                }
+            }
+            channelOperations.add(operations);
+        }
+    }
+
+    int processCount() {
+        return pgs.size();
+    }
+
+    ProgramGraph<L, A> programGraph(int process) {
+        return pgs.get(process);
+    }
+
+    /**
+     * @return {@code state}, with its evaluation replaced by the canonical one.
+     */
+    Pair<List<L>, Map<String, Object>> intern(Pair<List<L>, Map<String, Object>> state) {
+        return Pair.pair(state.getFirst(), evaluations.intern(state.getSecond()));
+    }
+
+    Set<Pair<List<L>, Map<String, Object>>> initialStates() {
+        Set<List<L>> initialLocations = Collections.singleton(Collections.emptyList());
+        for (ProgramGraph<L, A> pg : pgs) {
+            initialLocations = initialLocations.stream()
+                    .flatMap(prefix -> pg.getInitialLocations().stream()
+                            .map(loc -> Stream.concat(prefix.stream(), Stream.of(loc)).collect(Collectors.toList())))
+                    .collect(Collectors.toSet());
+        }
+
+        Set<List<String>> initializations = new HashSet<>(pgs.get(0).getInitalizations());
+        for (int i = 1; i < pgs.size(); i++) {
+            initializations = FvmFacadeImpl.addInitializations(initializations, pgs.get(i).getInitalizations());
+        }
+
+        Set<Pair<List<L>, Map<String, Object>>> result = new HashSet<>();
+        for (List<L> locations : initialLocations) {
+            if (initializations.isEmpty()) {
+                result.add(Pair.pair(locations, evaluations.empty()));
+            } else {
+                Map<String, Object> eval = new HashMap<>();
+                for (List<String> init : initializations) {
+                    for (String s : init) {
+                        eval = ad.effect(eval, s);
+                    }
+                    result.add(Pair.pair(locations, evaluations.intern(eval)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * All steps from {@code state}: the local steps of every process, then the handshakes.
+     */
+    List<Transition<Pair<List<L>, Map<String, Object>>, A>> successors(Pair<List<L>, Map<String, Object>> state) {
+        List<Transition<Pair<List<L>, Map<String, Object>>, A>> result = new ArrayList<>();
+        for (int i = 0; i < pgs.size(); i++) {
+            result.addAll(localSuccessors(state, i));
+        }
+        result.addAll(handShakeSuccessors(state));
+        return result;
+    }
+
+    /**
+     * Steps of process {@code process} alone, i.e. its enabled edges that are not channel
+     * operations waiting for a partner.
+     */
+    List<Transition<Pair<List<L>, Map<String, Object>>, A>> localSuccessors(Pair<List<L>, Map<String, Object>> state, int process) {
+        List<Transition<Pair<List<L>, Map<String, Object>>, A>> result = new ArrayList<>();
+        Evaluation eval = (Evaluation) state.getSecond();
+        for (PGTransition<L, A> trans : indexes.get(process).outgoing(state.getFirst().get(process))) {
+            if (conditions.apply(trans.getCondition(), eval) && !iad.isOneSidedAction(trans.getAction().toString())) {
+                Evaluation next = effects.apply(trans.getAction(), eval);
+                if (next != null) {
+                    List<L> locations = new ArrayList<>(state.getFirst());
+                    locations.set(process, trans.getTo());
+                    result.add(new Transition<>(state, trans.getAction(), Pair.pair(locations, next)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Handshakes from {@code state}: an enabled send of one process paired with an enabled receive
+     * of another on the same channel, in either order.
+     */
+    List<Transition<Pair<List<L>, Map<String, Object>>, A>> handShakeSuccessors(Pair<List<L>, Map<String, Object>> state) {
+        Evaluation eval = (Evaluation) state.getSecond();
+        Map<String, List<Pair<Integer, PGTransition<L, A>>>> sends = new HashMap<>();
+        Map<String, List<Pair<Integer, PGTransition<L, A>>>> receives = new HashMap<>();
+        for (int i = 0; i < pgs.size(); i++) {
+            for (ChannelOperation<L, A> op : channelOperations.get(i).getOrDefault(state.getFirst().get(i), Collections.emptyList())) {
+                if (conditions.apply(op.edge.getCondition(), eval)) {
+                    (op.send ? sends : receives).computeIfAbsent(op.channel, c -> new ArrayList<>()).add(Pair.pair(i, op.edge));
+                }
+            }
+        }
+
+        Set<Transition<List<L>, A>> handShakes = new HashSet<>();
+        sends.forEach((channel, senders) -> {
+            for (Pair<Integer, PGTransition<L, A>> sender : senders) {
+                for (Pair<Integer, PGTransition<L, A>> receiver : receives.getOrDefault(channel, Collections.emptyList())) {
+                    if (!sender.getFirst().equals(receiver.getFirst())) {
+                        addHandShake(handShakes, state.getFirst(), sender, receiver);
+                        addHandShake(handShakes, state.getFirst(), receiver, sender);
+                    }
+                }
+            }
+        });
+
+        List<Transition<Pair<List<L>, Map<String, Object>>, A>> result = new ArrayList<>();
+        for (Transition<List<L>, A> tran : handShakes) {
+            Evaluation next = handShakeEffects.apply(tran.getAction(), eval);
+            if (next != null) {
+                result.add(new Transition<>(state, tran.getAction(), Pair.pair(tran.getTo(), next)));
+            }
+        }
+        return result;
+    }
+
+    private void addHandShake(Set<Transition<List<L>, A>> handShakes, List<L> from,
+                              Pair<Integer, PGTransition<L, A>> first, Pair<Integer, PGTransition<L, A>> second) {
+        Optional<A> action = synchronisations.computeIfAbsent(Pair.pair(first.getSecond().getAction(), second.getSecond().getAction()),
+                this::synchronisation);
+        if (action.isPresent()) {
+            List<L> locations = new ArrayList<>(from);
+            locations.set(first.getFirst(), first.getSecond().getTo());
+            locations.set(second.getFirst(), second.getSecond().getTo());
+            handShakes.add(new Transition<>(from, action.get(), locations));
+        }
+    }
+
+    /**
+     * @return the joint action "{@code a1|a2}", if it is a valid handshake.
+     */
+    @SuppressWarnings("unchecked")
+    private Optional<A> synchronisation(Pair<A, A> actions) {
+        String act = actions.getFirst().toString() + "|" + actions.getSecond().toString();
+        return iad.isMatchingAction(act) ? Optional.of((A) act) : Optional.empty();
+    }
+
+    /**
+     * An edge whose action is a send ({@code c!e}) or receive ({@code c?x}) on channel {@code c}.
+     */
+    private static final class ChannelOperation<L, A> {
+        final PGTransition<L, A> edge;
+        final String channel;
+        final boolean send;
+
+        ChannelOperation(PGTransition<L, A> edge, String channel, boolean send) {
+            this.edge = edge;
+            this.channel = channel;
+            this.send = send;
+        }
+    }
+}
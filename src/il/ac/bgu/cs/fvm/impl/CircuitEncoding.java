@@ -0,0 +1,85 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.circuits.Circuit;
+import il.ac.bgu.cs.fvm.exceptions.FVMException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs circuit input and register vectors into {@code long} bit masks (bit {@code i} is the
+ * {@code i}-th name in iteration order), so a whole circuit state is a single {@code long}:
+ * registers in the high bits, inputs in the low bits. {@code Map} views are built once per
+ * distinct vector, only where the {@link Circuit} API needs them.
+ */
+class CircuitEncoding {
+    private final Circuit circuit;
+    private final List<String> inputNames;
+    private final List<String> registerNames;
+    private final List<Map<String, Boolean>> inputViews;
+    private final Map<Long, Map<String, Boolean>> registerViews = new HashMap<>();
+
+    CircuitEncoding(Circuit circuit) {
+        this.circuit = circuit;
+        this.inputNames = new ArrayList<>(circuit.getInputPortNames());
+        this.registerNames = new ArrayList<>(circuit.getRegisterNames());
+        if (inputNames.size() > 30 || inputNames.size() + registerNames.size() > 62) {
+            throw new FVMException("Circuit has too many inputs and registers for explicit exploration");
+        }
+
+        int inputCombinations = 1 << inputNames.size();
+        inputViews = new ArrayList<>(inputCombinations);
+        for (int i = 0; i < inputCombinations; i++) {
+            inputViews.add(decode(inputNames, i));
+        }
+    }
+
+    int inputCombinations() {
+        return inputViews.size();
+    }
+
+    long state(long inputs, long registers) {
+        return registers << inputNames.size() | inputs;
+    }
+
+    int inputs(long state) {
+        return (int) (state & (inputViews.size() - 1));
+    }
+
+    long registers(long state) {
+        return state >>> inputNames.size();
+    }
+
+    Map<String, Boolean> inputView(long inputs) {
+        return inputViews.get((int) inputs);
+    }
+
+    Map<String, Boolean> registerView(long registers) {
+        return registerViews.computeIfAbsent(registers, r -> decode(registerNames, r));
+    }
+
+    /**
+     * @return the register vector after one clock tick from {@code state}.
+     */
+    long nextRegisters(long state) {
+        Map<String, Boolean> next = circuit.updateRegisters(inputView(inputs(state)), registerView(registers(state)));
+        long mask = 0;
+        for (int i = 0; i < registerNames.size(); i++) {
+            if (next.get(registerNames.get(i))) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    private static Map<String, Boolean> decode(List<String> names, long mask) {
+        Map<String, Boolean> view = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            view.put(names.get(i), (mask >>> i & 1) == 1);
+        }
+        return Collections.unmodifiableMap(view);
+    }
+}
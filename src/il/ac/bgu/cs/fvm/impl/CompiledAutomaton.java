@@ -0,0 +1,115 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An automaton's transition function as a table indexed by (state id, letter id), so a product
+ * step is two array lookups instead of hashing a label set into a map.
+ * <p>
+ * States and letters (the label sets on transitions) are numbered densely. While the
+ * automaton mentions at most 63 propositions, each proposition is given a bit and a label is
+ * identified by its {@code long} mask, so finding the letter of a label never hashes the set
+ * itself. {@link #letter} is meant to be called once per transition-system state and cached.
+ */
+final class CompiledAutomaton<Q, P> {
+    static final int NO_LETTER = -1;
+
+    private static final int[] NONE = new int[0];
+
+    private final Interner<Q> states = new Interner<>();
+    private final int[] initialStates;
+    private final Map<P, Integer> bits = new HashMap<>();
+    private final boolean masks;
+    private final Map<Long, Integer> letterByMask = new HashMap<>();
+    private final Interner<Set<P>> letterBySet = new Interner<>();
+    // Indexed by [state][letter]; rows are as long as the letters seen when the row was built.
+    private final int[][][] delta;
+
+    CompiledAutomaton(Collection<Q> initialStates, Map<Q, ? extends Map<Set<P>, ? extends Set<Q>>> transitions) {
+        transitions.keySet().forEach(states::intern);
+        this.initialStates = initialStates.stream().mapToInt(states::intern).toArray();
+
+        for (Map<Set<P>, ? extends Set<Q>> outgoing : transitions.values()) {
+            for (Set<P> letter : outgoing.keySet()) {
+                letter.forEach(p -> bits.computeIfAbsent(p, x -> bits.size()));
+            }
+        }
+        this.masks = bits.size() < Long.SIZE;
+
+        List<List<int[]>> rows = new ArrayList<>();
+        for (int q = 0; q < states.size(); q++) {
+            List<int[]> row = new ArrayList<>();
+            Map<Set<P>, ? extends Set<Q>> outgoing = transitions.get(states.value(q));
+            if (outgoing != null) {
+                for (Map.Entry<Set<P>, ? extends Set<Q>> edge : outgoing.entrySet()) {
+                    int letter = internLetter(edge.getKey());
+                    while (row.size() <= letter) {
+                        row.add(NONE);
+                    }
+                    row.set(letter, edge.getValue().stream().mapToInt(states::intern).toArray());
+                }
+            }
+            rows.add(row);
+        }
+        this.delta = new int[rows.size()][][];
+        for (int q = 0; q < delta.length; q++) {
+            delta[q] = rows.get(q).toArray(new int[0][]);
+        }
+    }
+
+    int[] initialStates() {
+        return initialStates;
+    }
+
+    Q state(int id) {
+        return states.value(id);
+    }
+
+    int stateCount() {
+        return delta.length;
+    }
+
+    /**
+     * @return the id of the letter equal to {@code label}, or {@link #NO_LETTER} if no
+     * transition reads it.
+     */
+    int letter(Set<P> label) {
+        if (!masks) {
+            int id = letterBySet.id(label);
+            return id < 0 ? NO_LETTER : id;
+        }
+        long mask = 0;
+        for (P p : label) {
+            Integer bit = bits.get(p);
+            if (bit == null) {
+                return NO_LETTER;
+            }
+            mask |= 1L << bit;
+        }
+        return letterByMask.getOrDefault(mask, NO_LETTER);
+    }
+
+    /**
+     * @return the successors of state {@code q} on letter {@code letter}; never {@code null}.
+     */
+    int[] next(int q, int letter) {
+        int[][] row = delta[q];
+        return letter >= 0 && letter < row.length ? row[letter] : NONE;
+    }
+
+    private int internLetter(Set<P> letter) {
+        if (!masks) {
+            return letterBySet.intern(letter);
+        }
+        long mask = 0;
+        for (P p : letter) {
+            mask |= 1L << bits.get(p);
+        }
+        return letterByMask.computeIfAbsent(mask, m -> letterByMask.size());
+    }
+}
@@ -0,0 +1,16 @@
+package il.ac.bgu.cs.fvm.impl;
+
+/**
+ * Algorithms available to {@link FvmFacadeImpl} for checking that the product of a
+ * transition system and a property automaton has no accepting run.
+ */
+public enum EmptinessCheck {
+    /**
+     * Nested depth-first search; needs at most two bits of bookkeeping per product state.
+     */
+    NESTED_DFS,
+    /**
+     * Single-pass SCC decomposition; also handles generalized (multi-color) acceptance.
+     */
+    SCC
+}
@@ -0,0 +1,129 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable variable evaluation, stored as a flat array of values indexed by the variable
+ * slots of an {@link EvaluationTable}. The {@link Map#hashCode()} is computed once, and
+ * evaluations interned in the same table are equal iff they are the same object.
+ * <p>
+ * It is an ordinary read-only {@code Map}, so {@code ActionDef}s and {@code ConditionDef}s read it
+ * as before, and it is equal to any other map with the same entries.
+ */
+final class Evaluation extends AbstractMap<String, Object> {
+    // Stands for a variable bound to null; an empty slot is an unbound variable.
+    static final Object NULL = new Object();
+
+    private final EvaluationTable table;
+    // values.length is one past the last bound slot.
+    private final Object[] values;
+    private final int size;
+    private final int hash;
+
+    Evaluation(EvaluationTable table, Object[] values) {
+        this.table = table;
+        this.values = values;
+        int size = 0;
+        int hash = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                size++;
+                hash += table.variable(slot).hashCode() ^ (values[slot] == NULL ? 0 : values[slot].hashCode());
+            }
+        }
+        this.size = size;
+        this.hash = hash;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = slotValue(key);
+        return value == NULL ? null : value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slotValue(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof Evaluation && ((Evaluation) o).table == table) {
+            Evaluation that = (Evaluation) o;
+            return hash == that.hash && Arrays.equals(values, that.values);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int slot = nextBound(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < values.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Object value = values[slot];
+                        Entry<String, Object> entry = new SimpleImmutableEntry<>(table.variable(slot), value == NULL ? null : value);
+                        slot = nextBound(slot + 1);
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Every evaluation of a table was made by its {@link EvaluationTable#intern}, so this means
+     * it is already canonical there.
+     */
+    boolean belongsTo(EvaluationTable table) {
+        return this.table == table;
+    }
+
+    private int nextBound(int slot) {
+        while (slot < values.length && values[slot] == null) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private Object slotValue(Object key) {
+        int slot = table.slot(key);
+        return slot >= 0 && slot < values.length ? values[slot] : null;
+    }
+}
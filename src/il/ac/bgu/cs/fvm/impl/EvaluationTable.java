@@ -0,0 +1,101 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash-conses variable evaluations: assigns every variable name a fixed slot, and keeps a
+ * single {@link Evaluation} per distinct set of bindings. Safe for concurrent use.
+ * <p>
+ * Without hash-consing, only the slots are shared and memory stays proportional to the
+ * variables; evaluations are still compact and compare by array.
+ */
+class EvaluationTable {
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private volatile String[] variables = new String[8];
+    private int variableCount;
+    private final Map<Evaluation, Evaluation> evaluations = new ConcurrentHashMap<>();
+    private final boolean hashConsing;
+    private final Evaluation empty;
+
+    EvaluationTable() {
+        this(true);
+    }
+
+    EvaluationTable(boolean hashConsing) {
+        this.hashConsing = hashConsing;
+        this.empty = intern(new Object[0]);
+    }
+
+    Evaluation empty() {
+        return empty;
+    }
+
+    /**
+     * @return the canonical evaluation with the same bindings as {@code eval}, or {@code null}
+     * if {@code eval} is {@code null}.
+     */
+    Evaluation intern(Map<String, Object> eval) {
+        if (eval == null) {
+            return null;
+        }
+        if (eval instanceof Evaluation && ((Evaluation) eval).belongsTo(this)) {
+            return (Evaluation) eval;
+        }
+
+        Object[] values = new Object[0];
+        for (Map.Entry<String, Object> entry : eval.entrySet()) {
+            int slot = slotFor(entry.getKey());
+            if (slot >= values.length) {
+                values = Arrays.copyOf(values, slot + 1);
+            }
+            values[slot] = entry.getValue() == null ? Evaluation.NULL : entry.getValue();
+        }
+        return intern(values);
+    }
+
+    /**
+     * Number of distinct evaluations interned so far.
+     */
+    int size() {
+        return evaluations.size();
+    }
+
+    int slot(Object variable) {
+        Integer slot = slots.get(variable);
+        return slot == null ? -1 : slot;
+    }
+
+    String variable(int slot) {
+        return variables[slot];
+    }
+
+    private Evaluation intern(Object[] values) {
+        Evaluation eval = new Evaluation(this, values);
+        if (!hashConsing) {
+            return eval;
+        }
+        Evaluation existing = evaluations.putIfAbsent(eval, eval);
+        return existing == null ? eval : existing;
+    }
+
+    private int slotFor(String variable) {
+        Integer slot = slots.get(variable);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (this) {
+            slot = slots.get(variable);
+            if (slot == null) {
+                slot = variableCount++;
+                if (slot == variables.length) {
+                    variables = Arrays.copyOf(variables, 2 * slot);
+                }
+                variables[slot] = variable;
+                slots.put(variable, slot);
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+/**
+ * Memoizes a deterministic function of an expression (a condition or action string) and an
+ * {@link Evaluation}, such as {@code ConditionDef.evaluate} or {@code ActionDef.effect}. This
+ * memoizes results, it does not compile expressions: each (expression, evaluation) pair not in
+ * the cache is still parsed and evaluated by the definitions. Since evaluations are
+ * hash-consed, a hit costs one hash lookup.
+ * <p>
+ * Eviction approximates LRU with two generations of at most {@code capacity / 2} entries each.
+ * Entries are added to the young generation, and hits in the old one are copied back into it.
+ * When the young generation fills, it becomes the old one and the previous old one is dropped,
+ * so only entries unused for a whole generation are evicted. Lookups take no lock, so parallel
+ * exploration workers can share one cache.
+ */
+class ExpressionCache<R> {
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final BiFunction<Object, Evaluation, R> evaluator;
+    private final int generationSize;
+    private volatile ConcurrentMap<Pair<Object, Evaluation>, R> young = new ConcurrentHashMap<>();
+    private volatile ConcurrentMap<Pair<Object, Evaluation>, R> old = new ConcurrentHashMap<>();
+
+    ExpressionCache(BiFunction<Object, Evaluation, R> evaluator) {
+        this(evaluator, DEFAULT_CAPACITY);
+    }
+
+    ExpressionCache(BiFunction<Object, Evaluation, R> evaluator, int capacity) {
+        this.evaluator = evaluator;
+        this.generationSize = Math.max(capacity / 2, 1);
+    }
+
+    R apply(Object expression, Evaluation eval) {
+        Pair<Object, Evaluation> key = Pair.pair(expression, eval);
+        ConcurrentMap<Pair<Object, Evaluation>, R> current = young;
+        R result = current.get(key);
+        if (result != null) {
+            return result;
+        }
+        result = old.get(key);
+        if (result == null) {
+            // Concurrent misses on the same key compute equal results; either may be kept.
+            result = evaluator.apply(expression, eval);
+        }
+        current.put(key, result);
+        if (current.size() >= generationSize) {
+            promote(current);
+        }
+        return result;
+    }
+
+    private synchronized void promote(ConcurrentMap<Pair<Object, Evaluation>, R> full) {
+        // Another thread may have promoted this generation already.
+        if (young == full) {
+            old = full;
+            young = new ConcurrentHashMap<>();
+        }
+    }
+}
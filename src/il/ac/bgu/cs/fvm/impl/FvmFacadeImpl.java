@@ -4,7 +4,6 @@ import il.ac.bgu.cs.fvm.FvmFacade;
 import il.ac.bgu.cs.fvm.automata.Automaton;
 import il.ac.bgu.cs.fvm.automata.MultiColorAutomaton;
 import il.ac.bgu.cs.fvm.channelsystem.ChannelSystem;
-import il.ac.bgu.cs.fvm.channelsystem.ParserBasedInterleavingActDef;
 import il.ac.bgu.cs.fvm.circuits.Circuit;
 import il.ac.bgu.cs.fvm.exceptions.ActionNotFoundException;
 import il.ac.bgu.cs.fvm.exceptions.StateNotFoundException;
@@ -22,8 +21,14 @@ import il.ac.bgu.cs.fvm.verification.VerificationSucceeded;
 import org.antlr.v4.runtime.tree.ParseTree;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -33,6 +38,7 @@ import java.util.stream.Stream;
  * sub-packages.
  */
 public class FvmFacadeImpl implements FvmFacade {
+    private static final LtlTranslationCache TRANSLATIONS = new LtlTranslationCache(LtlTranslationCache.DEFAULT_CAPACITY);
 
     @Override
     public <S, A, P> TransitionSystem<S, A, P> createTransitionSystem() {
@@ -41,11 +47,14 @@ public class FvmFacadeImpl implements FvmFacade {
 
     @Override
     public <S, A, P> boolean isActionDeterministic(TransitionSystem<S, A, P> ts) {
-        for (S state : ts.getStates()) {
-            for (A action : ts.getActions()) {
-                if (post(ts, state, action).size() > 1) {
-                    return false;
-                }
+        if (ts instanceof IndexedTransitionSystem) {
+            return ((IndexedTransitionSystem<S, A, P>) ts).hasUniqueSuccessorPerAction() && ts.getInitialStates().size() <= 1;
+        }
+
+        Set<Pair<S, A>> seen = new HashSet<>();
+        for (Transition<S, A> trans : ts.getTransitions()) {
+            if (!seen.add(Pair.pair(trans.getFrom(), trans.getAction()))) {
+                return false;
             }
         }
 
@@ -114,6 +123,9 @@ public class FvmFacadeImpl implements FvmFacade {
 
     @Override
     public <S> Set<S> post(TransitionSystem<S, ?, ?> ts, S s) {
+        if (ts instanceof IndexedTransitionSystem) {
+            return ((IndexedTransitionSystem<S, ?, ?>) ts).post(s);
+        }
         return ts.getTransitions().stream()
                 .filter(trans -> trans.getFrom().equals(s))
                 .map(Transition::getTo)
@@ -130,6 +142,9 @@ public class FvmFacadeImpl implements FvmFacade {
 
     @Override
     public <S, A> Set<S> post(TransitionSystem<S, A, ?> ts, S s, A a) {
+        if (ts instanceof IndexedTransitionSystem) {
+            return ((IndexedTransitionSystem<S, A, ?>) ts).post(s, a);
+        }
         return ts.getTransitions().stream()
                 .filter(trans -> trans.getFrom().equals(s) && trans.getAction().equals(a))
                 .map(Transition::getTo)
@@ -147,6 +162,9 @@ public class FvmFacadeImpl implements FvmFacade {
 
     @Override
     public <S> Set<S> pre(TransitionSystem<S, ?, ?> ts, S s) {
+        if (ts instanceof IndexedTransitionSystem) {
+            return ((IndexedTransitionSystem<S, ?, ?>) ts).pre(s);
+        }
         return ts.getTransitions().stream()
                 .filter(trans -> trans.getTo().equals(s))
                 .map(Transition::getFrom)
@@ -163,6 +181,9 @@ public class FvmFacadeImpl implements FvmFacade {
 
     @Override
     public <S, A> Set<S> pre(TransitionSystem<S, A, ?> ts, S s, A a) {
+        if (ts instanceof IndexedTransitionSystem) {
+            return ((IndexedTransitionSystem<S, A, ?>) ts).pre(s, a);
+        }
         return ts.getTransitions().stream()
                 .filter(trans -> trans.getTo().equals(s) && trans.getAction().equals(a))
                 .map(Transition::getFrom)
@@ -179,21 +200,31 @@ public class FvmFacadeImpl implements FvmFacade {
 
     @Override
     public <S, A> Set<S> reach(TransitionSystem<S, A, ?> ts) {
-        List<S> states = new ArrayList<>(ts.getInitialStates());
-        Set<S> reachable = new HashSet<>();
-
-        while (!states.isEmpty()) {
-            S state = states.get(0);
-            states.remove(state);
-            if (!reachable.contains(state)) {
-                reachable.add(state);
-                states.addAll(post(ts, reachable).stream()
-                        .filter(s -> !states.contains(s))
-                        .collect(Collectors.toList()));
-            }
+        if (ts instanceof IndexedTransitionSystem) {
+            return ((IndexedTransitionSystem<S, A, ?>) ts).reach();
         }
+        return Reachability.explore(ts.getInitialStates(), s -> post(ts, s));
+    }
+
+    /**
+     * The quotient of {@code ts} by its coarsest label-respecting bisimulation (see
+     * {@link Bisimulation}); each state stands for its class. The quotient satisfies the same LTL
+     * formulas as {@code ts}, so it can replace it in {@link #verifyAnOmegaRegularProperty}.
+     * A counterexample on it is a sequence of representatives whose labels some path of
+     * {@code ts} matches, but not necessarily a path of {@code ts} itself.
+     */
+    public <S, A, P> TransitionSystem<S, A, P> minimize(TransitionSystem<S, A, P> ts) {
+        TransitionSystem<S, A, P> quotient = createTransitionSystem();
+        Bisimulation.quotient(ts, quotient);
+        return quotient;
+    }
 
-        return reachable;
+    /**
+     * Like {@link #reach(TransitionSystem)}, reporting each reachable state to {@code visitor}
+     * together with its search-tree parent, depth and discovery index.
+     */
+    public <S, A> Set<S> reach(TransitionSystem<S, A, ?> ts, Reachability.Order order, Reachability.Visitor<? super S> visitor) {
+        return Reachability.explore(ts.getInitialStates(), s -> post(ts, s), order, visitor);
     }
 
     private <S1, S2> Set<Pair<S1, S2>> interleaveStates(Set<S1> states1, Set<S2> states2) {
@@ -217,53 +248,41 @@ public class FvmFacadeImpl implements FvmFacade {
     @Override
     public <S1, S2, A, P> TransitionSystem<Pair<S1, S2>, A, P> interleave(TransitionSystem<S1, A, P> ts1, TransitionSystem<S2, A, P> ts2, Set<A> handShakingActions) {
         TransitionSystem<Pair<S1, S2>, A, P> interleaved = createTransitionSystem();
-        // States
-        interleaved.addAllStates(interleaveStates(ts1.getStates(), ts2.getStates()));
-        // Initial states
-        interleaveStates(ts1.getInitialStates(), ts2.getInitialStates()).forEach(interleaved::addInitialState);
         // Actions
         interleaved.addAllActions(union(ts1.getActions(), ts2.getActions()));
         // Atomic Propositions
         interleaved.addAllAtomicPropositions(union(ts1.getAtomicPropositions(), ts2.getAtomicPropositions()));
-        // Transitions
-        ts1.getTransitions().stream()
-                .filter(t -> !handShakingActions.contains(t.getAction()))
-                .forEach(t1 ->
-                        interleaved.getStates().forEach(p1 ->
-                                interleaved.getStates().forEach(p2 -> {
-                                    if (t1.getFrom().equals(p1.getFirst()) && t1.getTo().equals(p2.getFirst()) && p1.getSecond().equals(p2.getSecond())) {
-                                        interleaved.addTransition(new Transition<>(p1, t1.getAction(), p2));
-                                    }
-                                })));
-        ts2.getTransitions().stream()
-                .filter(t -> !handShakingActions.contains(t.getAction()))
-                .forEach(t2 ->
-                        interleaved.getStates().forEach(p1 ->
-                                interleaved.getStates().forEach(p2 -> {
-                                    if (t2.getFrom().equals(p1.getSecond()) && t2.getTo().equals(p2.getSecond()) && p1.getFirst().equals(p2.getFirst())) {
-                                        interleaved.addTransition(new Transition<>(p1, t2.getAction(), p2));
-                                    }
-                                })));
-        handShakingActions.forEach(a ->
-                ts1.getTransitions().forEach(t1 ->
-                        ts2.getTransitions().forEach(t2 -> {
-                            if (t1.getAction().equals(a) && t2.getAction().equals(a)) {
-                                interleaved.addTransition(new Transition<>(Pair.pair(t1.getFrom(), t2.getFrom()), a, Pair.pair(t1.getTo(), t2.getTo())));
-                            }
-                        })));
-
-        Set<Pair<S1, S2>> reachableStates = reach(interleaved);
-        Set<Pair<S1, S2>> unreachableStates = interleaved.getStates().stream()
-                .filter(p -> !reachableStates.contains(p))
-                .collect(Collectors.toSet());
-        Set<Transition<Pair<S1, S2>, A>> unreachableTransitions = interleaved.getTransitions().stream()
-                .filter(t ->
-                        unreachableStates.stream().anyMatch(p ->
-                                t.getFrom().equals(p) || t.getTo().equals(p)))
-                .collect(Collectors.toSet());
+        // Initial states
+        Set<Pair<S1, S2>> initialStates = interleaveStates(ts1.getInitialStates(), ts2.getInitialStates());
+        interleaved.addAllStates(initialStates);
+        initialStates.forEach(interleaved::addInitialState);
 
-        unreachableTransitions.forEach(interleaved::removeTransition);
-        unreachableStates.forEach(interleaved::removeState);
+        // Reachable states & transitions
+        Deque<Pair<S1, S2>> toCheck = new ArrayDeque<>(initialStates);
+        while (!toCheck.isEmpty()) {
+            Pair<S1, S2> from = toCheck.poll();
+            BiConsumer<A, Pair<S1, S2>> addTransition = (a, to) -> {
+                if (!interleaved.getStates().contains(to)) {
+                    interleaved.addState(to);
+                    toCheck.add(to);
+                }
+                interleaved.addTransition(new Transition<>(from, a, to));
+            };
+
+            Map<A, Set<S2>> post2 = postByAction(ts2, from.getSecond());
+            postByAction(ts1, from.getFirst()).forEach((a, targets1) -> {
+                if (!handShakingActions.contains(a)) {
+                    targets1.forEach(s1 -> addTransition.accept(a, Pair.pair(s1, from.getSecond())));
+                } else if (post2.containsKey(a)) {
+                    targets1.forEach(s1 -> post2.get(a).forEach(s2 -> addTransition.accept(a, Pair.pair(s1, s2))));
+                }
+            });
+            post2.forEach((a, targets2) -> {
+                if (!handShakingActions.contains(a)) {
+                    targets2.forEach(s2 -> addTransition.accept(a, Pair.pair(from.getFirst(), s2)));
+                }
+            });
+        }
 
         // Labels
         interleaved.getStates().forEach(p ->
@@ -273,6 +292,18 @@ public class FvmFacadeImpl implements FvmFacade {
         return interleaved;
     }
 
+    /**
+     * Outgoing edges of {@code s}, grouped by action.
+     */
+    private <S, A> Map<A, Set<S>> postByAction(TransitionSystem<S, A, ?> ts, S s) {
+        if (ts instanceof IndexedTransitionSystem) {
+            return ((IndexedTransitionSystem<S, A, ?>) ts).postByAction(s);
+        }
+        return ts.getTransitions().stream()
+                .filter(trans -> trans.getFrom().equals(s))
+                .collect(Collectors.groupingBy(Transition::getAction, Collectors.mapping(Transition::getTo, Collectors.toSet())));
+    }
+
     @Override
     public <L, A> ProgramGraph<L, A> createProgramGraph() {
         return new ProgramGraphImpl<>();
@@ -289,97 +320,108 @@ public class FvmFacadeImpl implements FvmFacade {
         interleaveStates(pg1.getInitialLocations(), pg2.getInitialLocations()).forEach(interleaved::addInitialLocation);
 
         pg1.getTransitions().forEach(t1 ->
-                interleaved.getLocations().forEach(p1 ->
-                        interleaved.getLocations().forEach(p2 -> {
-                            if (t1.getFrom().equals(p1.getFirst()) && t1.getTo().equals(p2.getFirst()) && p1.getSecond().equals(p2.getSecond())) {
-                                interleaved.addTransition(new PGTransition<>(p1, t1.getCondition(), t1.getAction(), p2));
-                            }
-                        })));
+                pg2.getLocations().forEach(l2 ->
+                        interleaved.addTransition(new PGTransition<>(Pair.pair(t1.getFrom(), l2), t1.getCondition(), t1.getAction(), Pair.pair(t1.getTo(), l2)))));
         pg2.getTransitions().forEach(t2 ->
-                interleaved.getLocations().forEach(p1 ->
-                        interleaved.getLocations().forEach(p2 -> {
-                            if (t2.getFrom().equals(p1.getSecond()) && t2.getTo().equals(p2.getSecond()) && p1.getFirst().equals(p2.getFirst())) {
-                                interleaved.addTransition(new PGTransition<>(p1, t2.getCondition(), t2.getAction(), p2));
-                            }
-                        })));
+                pg1.getLocations().forEach(l1 ->
+                        interleaved.addTransition(new PGTransition<>(Pair.pair(l1, t2.getFrom()), t2.getCondition(), t2.getAction(), Pair.pair(l1, t2.getTo())))));
 
         return interleaved;
     }
 
-    private Boolean[] toBinary(int number, int length) {
-        StringBuilder binaryStringBuilder = new StringBuilder(Integer.toBinaryString(number));
-        for (int i = 0; i < (length - binaryStringBuilder.length()); i++) {
-            binaryStringBuilder.insert(0, "0");
+    /**
+     * Interleaves any number of program graphs in one pass, with location vectors instead of
+     * nested pairs. Only location vectors reachable from the initial ones (ignoring conditions)
+     * are created, which is all {@link #transitionSystemFromProgramGraph} ever visits.
+     * Initializations are concatenated; a graph without initializations contributes none.
+     */
+    public <L, A> ProgramGraph<List<L>, A> interleave(List<ProgramGraph<L, A>> pgs) {
+        ProgramGraph<List<L>, A> interleaved = createProgramGraph();
+
+        Set<List<String>> initializations = new HashSet<>();
+        for (ProgramGraph<L, A> pg : pgs) {
+            initializations = addInitializations(initializations, pg.getInitalizations());
         }
+        initializations.forEach(interleaved::addInitalization);
 
-        String binaryString = binaryStringBuilder.toString();
-        Boolean[] result = new Boolean[length];
+        List<Map<L, List<PGTransition<L, A>>>> outgoing = pgs.stream()
+                .map(pg -> pg.getTransitions().stream().collect(Collectors.groupingBy(PGTransition::getFrom)))
+                .collect(Collectors.toList());
 
-        for (int i = 0; i < length; i++) {
-            result[i] = binaryString.charAt(i) == '1';
+        Set<List<L>> initialLocations = Collections.singleton(Collections.emptyList());
+        for (ProgramGraph<L, A> pg : pgs) {
+            Set<List<L>> extended = new HashSet<>();
+            initialLocations.forEach(prefix -> pg.getInitialLocations().forEach(l -> {
+                List<L> locations = new ArrayList<>(prefix);
+                locations.add(l);
+                extended.add(locations);
+            }));
+            initialLocations = extended;
         }
+        initialLocations.forEach(l -> {
+            interleaved.addLocation(l);
+            interleaved.addInitialLocation(l);
+        });
 
-        return result;
+        Deque<List<L>> toCheck = new ArrayDeque<>(initialLocations);
+        while (!toCheck.isEmpty()) {
+            List<L> from = toCheck.poll();
+            for (int i = 0; i < pgs.size(); i++) {
+                for (PGTransition<L, A> t : outgoing.get(i).getOrDefault(from.get(i), Collections.emptyList())) {
+                    List<L> to = new ArrayList<>(from);
+                    to.set(i, t.getTo());
+                    if (!interleaved.getLocations().contains(to)) {
+                        interleaved.addLocation(to);
+                        toCheck.add(to);
+                    }
+                    interleaved.addTransition(new PGTransition<>(from, t.getCondition(), t.getAction(), to));
+                }
+            }
+        }
+
+        return interleaved;
     }
 
     @Override
     public TransitionSystem<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, Object> transitionSystemFromCircuit(Circuit c) {
         TransitionSystem<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, Object> ts = createTransitionSystem();
+        CircuitEncoding encoding = new CircuitEncoding(c);
 
-        List<String> inputPortNames = new ArrayList<>(c.getInputPortNames());
-        List<String> registerNames = new ArrayList<>(c.getRegisterNames());
-        List<String> outputPortNames = new ArrayList<>(c.getOutputPortNames());
-
-        int inputLength = c.getInputPortNames().size();
-        int registerLength = c.getRegisterNames().size();
-
-        double inputCombinations = Math.pow(2, c.getInputPortNames().size());
-        double registerCombinations = Math.pow(2, c.getRegisterNames().size());
-
-        // Handle states, init-states & actions
-        for (int i = 0; i < inputCombinations; i++) {
-            Boolean[] binaryInput = toBinary(i, inputLength);
-            Map<String, Boolean> inputState = new HashMap<>();
-            for (int varIndex = 0; varIndex < binaryInput.length; varIndex++) {
-                inputState.put(inputPortNames.get(varIndex), binaryInput[varIndex]);
-            }
-
-            for (int j = 0; j < registerCombinations; j++) {
-                Boolean[] binaryRegisters = toBinary(j, registerLength);
-                Map<String, Boolean> registerState = new HashMap<>();
-                for (int varIndex = 0; varIndex < binaryInput.length; varIndex++) {
-                    registerState.put(registerNames.get(varIndex), binaryRegisters[varIndex]);
-                }
+        // Actions & atomic propositions
+        for (int i = 0; i < encoding.inputCombinations(); i++) {
+            ts.addAction(encoding.inputView(i));
+        }
+        union(c.getInputPortNames(), union(c.getRegisterNames(), c.getOutputPortNames())).forEach(ts::addAtomicProposition);
+
+        // Initial states: any input, all registers off
+        Map<Long, Pair<Map<String, Boolean>, Map<String, Boolean>>> states = new HashMap<>();
+        Deque<Long> toCheck = new ArrayDeque<>();
+        for (int i = 0; i < encoding.inputCombinations(); i++) {
+            long key = encoding.state(i, 0);
+            Pair<Map<String, Boolean>, Map<String, Boolean>> state = Pair.pair(encoding.inputView(i), encoding.registerView(0));
+            states.put(key, state);
+            ts.addState(state);
+            ts.addInitialState(state);
+            toCheck.add(key);
+        }
 
-                ts.addState(Pair.pair(inputState, registerState));
-                if (j == 0) {
-                    ts.addInitialState(Pair.pair(inputState, registerState));
+        // Reachable states & transitions: one register update per state
+        while (!toCheck.isEmpty()) {
+            long from = toCheck.poll();
+            long registers = encoding.nextRegisters(from);
+            for (int i = 0; i < encoding.inputCombinations(); i++) {
+                long to = encoding.state(i, registers);
+                Pair<Map<String, Boolean>, Map<String, Boolean>> toState = states.get(to);
+                if (toState == null) {
+                    toState = Pair.pair(encoding.inputView(i), encoding.registerView(registers));
+                    states.put(to, toState);
+                    ts.addState(toState);
+                    toCheck.add(to);
                 }
+                ts.addTransition(new Transition<>(states.get(from), toState.getFirst(), toState));
             }
-
-            ts.addAction(inputState);
         }
 
-        union(inputPortNames, union(registerNames, outputPortNames)).forEach(ts::addAtomicProposition);
-
-        ts.getStates().forEach(s1 ->
-                ts.getStates().forEach(s2 -> {
-                    if (c.updateRegisters(s1.getFirst(), s1.getSecond()).equals(s2.getSecond())) {
-                        ts.addTransition(new Transition<>(s1, s2.getFirst(), s2));
-                    }
-                }));
-
-        Set<Pair<Map<String, Boolean>, Map<String, Boolean>>> reachableStates = reach(ts);
-        Set<Pair<Map<String, Boolean>, Map<String, Boolean>>> unreachableStates = ts.getStates().stream()
-                .filter(s -> !reachableStates.contains(s))
-                .collect(Collectors.toSet());
-        Set<Transition<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>>> unreachableTransitions = ts.getTransitions().stream()
-                .filter(t -> unreachableStates.contains(t.getFrom()) || unreachableStates.contains(t.getTo()))
-                .collect(Collectors.toSet());
-
-        unreachableTransitions.forEach(ts::removeTransition);
-        unreachableStates.forEach(ts::removeState);
-
         ts.getStates().forEach(s ->
                 union(s.getFirst().entrySet(),
                         union(s.getSecond().entrySet(),
@@ -393,8 +435,128 @@ public class FvmFacadeImpl implements FvmFacade {
 
     @Override
     public <L, A> TransitionSystem<Pair<L, Map<String, Object>>, A, String> transitionSystemFromProgramGraph(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs) {
+        return transitionSystemFromProgramGraph(pg, actionDefs, conditionDefs, UnaryOperator.identity());
+    }
+
+    /**
+     * Same as {@link #transitionSystemFromProgramGraph(ProgramGraph, Set, Set)}, reduced by
+     * symmetry: every state is replaced by {@code symmetry.apply(state)}, a representative of its
+     * orbit (see {@link ProcessSymmetry}).
+     */
+    public <L, A> TransitionSystem<Pair<L, Map<String, Object>>, A, String> transitionSystemFromProgramGraph(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs,
+                                                                                                          UnaryOperator<Pair<L, Map<String, Object>>> symmetry) {
         TransitionSystem<Pair<L, Map<String, Object>>, A, String> ts = createTransitionSystem();
+        EvaluationTable evaluations = new EvaluationTable();
+        ProgramGraphIndex<L, A> index = new ProgramGraphIndex<>(pg, actionDefs);
+        ExpressionCache<Boolean> conditions = conditionCache(conditionDefs);
+        ExpressionCache<List<Evaluation>> effects = effectCache(index, evaluations);
+        UnaryOperator<Pair<L, Map<String, Object>>> representative = s -> {
+            Pair<L, Map<String, Object>> r = symmetry.apply(s);
+            return r == s ? s : Pair.pair(r.getFirst(), evaluations.intern(r.getSecond()));
+        };
+
+        // Initial states
+        initialProgramGraphStates(pg, actionDefs, evaluations).stream().map(representative).forEach(s -> {
+            ts.addState(s);
+            ts.addInitialState(s);
+        });
+
+        // States, Actions & Transitions
+        Deque<Pair<L, Map<String, Object>>> states = new ArrayDeque<>(ts.getInitialStates());
+        while (!states.isEmpty()) {
+            Pair<L, Map<String, Object>> fromState = states.poll();
+            for (Transition<Pair<L, Map<String, Object>>, A> t : programGraphSuccessors(index, conditions, effects, fromState)) {
+                Pair<L, Map<String, Object>> to = representative.apply(t.getTo());
+                if (!ts.getStates().contains(to)) {
+                    ts.addState(to);
+                    states.add(to);
+                }
+
+                ts.addAction(t.getAction());
+                ts.addTransition(new Transition<>(fromState, t.getAction(), to));
+            }
+        }
+
+        labelProgramGraphStates(ts);
+        return ts;
+    }
 
+    /**
+     * Same as {@link #transitionSystemFromProgramGraph(ProgramGraph, Set, Set)}, but explores the
+     * state space on {@code parallelism} threads. The result is identical to the sequential one;
+     * {@code actionDefs} and {@code conditionDefs} must be thread-safe.
+     */
+    public <L, A> TransitionSystem<Pair<L, Map<String, Object>>, A, String> transitionSystemFromProgramGraph(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs,
+                                                                                                          int parallelism) {
+        TransitionSystem<Pair<L, Map<String, Object>>, A, String> ts = createTransitionSystem();
+        EvaluationTable evaluations = new EvaluationTable();
+        ProgramGraphIndex<L, A> index = new ProgramGraphIndex<>(pg, actionDefs);
+        ExpressionCache<Boolean> conditions = conditionCache(conditionDefs);
+        ExpressionCache<List<Evaluation>> effects = effectCache(index, evaluations);
+        Set<Pair<L, Map<String, Object>>> initialStates = initialProgramGraphStates(pg, actionDefs, evaluations);
+        ParallelStateSpace<Pair<L, Map<String, Object>>, A> space = ParallelStateSpace.explore(initialStates,
+                s -> programGraphSuccessors(index, conditions, effects, s), parallelism);
+
+        ts.addAllStates(space.getStates());
+        initialStates.forEach(ts::addInitialState);
+        space.getTransitions().forEach(t -> {
+            ts.addAction(t.getAction());
+            ts.addTransition(t);
+        });
+
+        labelProgramGraphStates(ts);
+        return ts;
+    }
+
+    /**
+     * Same as {@link #transitionSystemFromProgramGraph(ProgramGraph, Set, Set)}, but the result is
+     * a {@link MappedTransitionSystem} in {@code directory}, so the state space is bounded by the
+     * disk rather than the heap. The caller closes it.
+     */
+    public <L, A> MappedTransitionSystem<Pair<L, Map<String, Object>>, A, String> transitionSystemFromProgramGraph(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs,
+                                                                                                                Path directory) {
+        MappedTransitionSystem<Pair<L, Map<String, Object>>, A, String> ts = new MappedTransitionSystem<>(directory);
+        // Stored states are decoded with plain maps; hash-consing them would keep every evaluation on the heap.
+        EvaluationTable evaluations = new EvaluationTable(false);
+        ProgramGraphIndex<L, A> index = new ProgramGraphIndex<>(pg, actionDefs);
+        ExpressionCache<Boolean> conditions = conditionCache(conditionDefs);
+        ExpressionCache<List<Evaluation>> effects = effectCache(index, evaluations);
+
+        initialProgramGraphStates(pg, actionDefs, evaluations).forEach(s -> {
+            ts.addState(s);
+            ts.addInitialState(s);
+        });
+
+        // Breadth-first: ids are assigned in discovery order, so the queue is just the next id.
+        for (int id = 0; id < ts.stateIdBound(); id++) {
+            Pair<L, Map<String, Object>> stored = ts.state(id);
+            Pair<L, Map<String, Object>> fromState = Pair.pair(stored.getFirst(), evaluations.intern(stored.getSecond()));
+            for (Transition<Pair<L, Map<String, Object>>, A> t : programGraphSuccessors(index, conditions, effects, fromState)) {
+                if (ts.stateId(t.getTo()) < 0) {
+                    ts.addState(t.getTo());
+                }
+                ts.addAction(t.getAction());
+                ts.addTransition(t);
+            }
+            programGraphLabel(fromState).forEach(ap -> {
+                ts.addAtomicProposition(ap);
+                ts.addToLabel(fromState, ap);
+            });
+        }
+        return ts;
+    }
+
+    /**
+     * The reachable states of {@code pg}, computed symbolically over the declared finite
+     * {@code domains} of its variables instead of by {@link #transitionSystemFromProgramGraph}'s
+     * explicit exploration. See {@link SymbolicProgramGraph} for what the definitions must obey.
+     */
+    public <L, A> SymbolicProgramGraph<L> symbolicProgramGraph(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs,
+                                                                Map<String, ? extends Collection<?>> domains) {
+        return new SymbolicProgramGraph<>(pg, actionDefs, conditionDefs, domains);
+    }
+
+    private <L, A> Set<Pair<L, Map<String, Object>>> initialProgramGraphStates(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, EvaluationTable evaluations) {
         // Initializations evaluation
         Set<Map<String, Object>> initialEvals = pg.getInitalizations().stream().map(init -> {
             Map<String, Object> initEval = new HashMap<>();
@@ -404,65 +566,126 @@ public class FvmFacadeImpl implements FvmFacade {
                     initEval = ad.effect(initEval, s);
                 }
             }
-            return initEval;
+            return evaluations.intern(initEval);
         }).collect(Collectors.toSet());
 
         if (initialEvals.isEmpty()) {
-            initialEvals.add(new HashMap<>());
+            initialEvals.add(evaluations.empty());
         }
 
-        // Initial states
+        Set<Pair<L, Map<String, Object>>> initialStates = new HashSet<>();
         pg.getInitialLocations().forEach(loc ->
-                initialEvals.forEach(eval -> {
-                    ts.addState(Pair.pair(loc, eval));
-                    ts.addInitialState(Pair.pair(loc, eval));
-                }));
+                initialEvals.forEach(eval -> initialStates.add(Pair.pair(loc, eval))));
+        return initialStates;
+    }
 
-        // States, Actions & Transitions
-        List<Pair<L, Map<String, Object>>> states = new ArrayList<>(ts.getInitialStates());
-        while (!states.isEmpty()) {
-            Pair<L, Map<String, Object>> fromState = states.get(0);
-            states.remove(0);
-
-            pg.getTransitions().forEach(t -> {
-                if (t.getFrom().equals(fromState.getFirst()) && conditionDefs.stream().anyMatch(c -> c.evaluate(fromState.getSecond(), t.getCondition()))) {
-                    Set<ActionDef> matches = actionDefs.stream()
-                            .filter(ad -> ad.isMatchingAction(t.getAction()))
-                            .collect(Collectors.toSet());
-                    Consumer<Map<String, Object>> addToTransitionSystem = evaluation -> {
-                        Pair<L, Map<String, Object>> toState = Pair.pair(t.getTo(), evaluation);
-                        if (!ts.getStates().contains(toState)) {
-                            ts.addState(toState);
-                            states.add(toState);
-                        }
-
-                        ts.addAction(t.getAction());
-                        ts.addTransition(new Transition<>(fromState, t.getAction(), toState));
-                    };
-                    if (matches.isEmpty()) {
-                        addToTransitionSystem.accept(fromState.getSecond());
-                    } else {
-                        matches.forEach(ad -> addToTransitionSystem.accept(ad.effect(fromState.second, t.getAction())));
-                    }
-                }
-            });
+    private <L, A> List<Transition<Pair<L, Map<String, Object>>, A>> programGraphSuccessors(ProgramGraphIndex<L, A> index, ExpressionCache<Boolean> conditions,
+                                                                                          ExpressionCache<List<Evaluation>> effects,
+                                                                                          Pair<L, Map<String, Object>> fromState) {
+        List<Transition<Pair<L, Map<String, Object>>, A>> result = new ArrayList<>();
+        Evaluation eval = (Evaluation) fromState.getSecond();
+        for (PGTransition<L, A> t : index.outgoing(fromState.getFirst())) {
+            if (conditions.apply(t.getCondition(), eval)) {
+                effects.apply(t.getAction(), eval).forEach(evaluation ->
+                        result.add(new Transition<>(fromState, t.getAction(), Pair.pair(t.getTo(), evaluation))));
+            }
         }
+        return result;
+    }
 
-        // Atomic Propositions & labels
-        ts.getStates().forEach(s -> {
-            ts.addAtomicProposition(s.getFirst().toString());
-            ts.addToLabel(s, s.first.toString());
-            s.getSecond().forEach((key, value) -> {
-                String expr = key + " = " + value;
-                ts.addAtomicProposition(expr);
-                ts.addToLabel(s, expr);
-            });
+    private ExpressionCache<Boolean> conditionCache(Set<ConditionDef> conditionDefs) {
+        return new ExpressionCache<>((condition, eval) -> conditionDefs.stream().anyMatch(c -> c.evaluate(eval, (String) condition)));
+    }
+
+    /**
+     * Successor evaluations of an action: one per matching {@link ActionDef}, or the evaluation
+     * itself if none matches.
+     */
+    private ExpressionCache<List<Evaluation>> effectCache(ProgramGraphIndex<?, ?> index, EvaluationTable evaluations) {
+        return new ExpressionCache<>((action, eval) -> {
+            List<Evaluation> result = index.actionDefs(action).stream()
+                    .map(ad -> evaluations.intern(ad.effect(eval, action)))
+                    .collect(Collectors.toList());
+            return result.isEmpty() ? Collections.singletonList(eval) : result;
         });
+    }
 
-        return ts;
+    private <L, A> void labelProgramGraphStates(TransitionSystem<Pair<L, Map<String, Object>>, A, String> ts) {
+        // Atomic Propositions & labels
+        ts.getStates().forEach(s -> programGraphLabel(s).forEach(ap -> {
+            ts.addAtomicProposition(ap);
+            ts.addToLabel(s, ap);
+        }));
+    }
+
+    private <L> Set<String> programGraphLabel(Pair<L, Map<String, Object>> s) {
+        Set<String> label = new HashSet<>();
+        label.add(s.getFirst().toString());
+        s.getSecond().forEach((key, value) -> label.add(key + " = " + value));
+        return label;
+    }
+
+    /**
+     * Checks the program graph's state space against {@code aut} as
+     * {@link #verifyAnOmegaRegularProperty} would on {@link #transitionSystemFromProgramGraph},
+     * but on the fly and with bitstate hashing: no transition system is built, and visited states
+     * are kept in two bit arrays of {@code 2^log2Bits} bits, with {@code hashes} bits per state.
+     * A reported counterexample is genuine; a success holds up to the reported coverage.
+     */
+    public <L, A, Saut> BitstateResult<Pair<L, Map<String, Object>>> verifyAnOmegaRegularPropertyBitstate(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs,
+                                                                                                         Automaton<Saut, String> aut, int log2Bits, int hashes) {
+        EvaluationTable evaluations = new EvaluationTable(false);
+        ProgramGraphIndex<L, A> index = new ProgramGraphIndex<>(pg, actionDefs);
+        ExpressionCache<Boolean> conditions = conditionCache(conditionDefs);
+        ExpressionCache<List<Evaluation>> effects = effectCache(index, evaluations);
+        return bitstateEmptinessCheck(initialProgramGraphStates(pg, actionDefs, evaluations),
+                s -> programGraphSuccessors(index, conditions, effects, s).stream().map(Transition::getTo).collect(Collectors.toList()),
+                this::programGraphLabel, aut, log2Bits, hashes);
+    }
+
+    /**
+     * Checks that {@code invariant} holds in every reachable state of the program graph, by a
+     * depth-first search with bitstate hashing (see
+     * {@link #verifyAnOmegaRegularPropertyBitstate(ProgramGraph, Set, Set, Automaton, int, int)}).
+     * A counterexample is a path to a violating state, with an empty cycle.
+     */
+    public <L, A> BitstateResult<Pair<L, Map<String, Object>>> verifyInvariantBitstate(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs,
+                                                                                      Predicate<Pair<L, Map<String, Object>>> invariant, int log2Bits, int hashes) {
+        EvaluationTable evaluations = new EvaluationTable(false);
+        ProgramGraphIndex<L, A> index = new ProgramGraphIndex<>(pg, actionDefs);
+        ExpressionCache<Boolean> conditions = conditionCache(conditionDefs);
+        ExpressionCache<List<Evaluation>> effects = effectCache(index, evaluations);
+        BitstateVisitedSet<Pair<L, Map<String, Object>>> visited = new BitstateVisitedSet<>(log2Bits, hashes, 0);
+
+        Deque<Pair<Pair<L, Map<String, Object>>, Iterator<Transition<Pair<L, Map<String, Object>>, A>>>> stack = new ArrayDeque<>();
+        for (Pair<L, Map<String, Object>> initial : initialProgramGraphStates(pg, actionDefs, evaluations)) {
+            Pair<L, Map<String, Object>> next = initial;
+            while (next != null) {
+                if (visited.add(next)) {
+                    if (!invariant.test(next)) {
+                        List<Pair<L, Map<String, Object>>> path = new ArrayList<>();
+                        stack.descendingIterator().forEachRemaining(f -> path.add(f.getFirst()));
+                        path.add(next);
+                        return new BitstateResult<>(verificationResult(new Lasso<>(path, Collections.emptyList())),
+                                visited.size(), visited.coverage(), visited.collisionProbability());
+                    }
+                    stack.push(Pair.pair(next, programGraphSuccessors(index, conditions, effects, next).iterator()));
+                }
+                next = null;
+                while (next == null && !stack.isEmpty()) {
+                    Iterator<Transition<Pair<L, Map<String, Object>>, A>> successors = stack.peek().getSecond();
+                    if (successors.hasNext()) {
+                        next = successors.next().getTo();
+                    } else {
+                        stack.pop();
+                    }
+                }
+            }
+        }
+        return new BitstateResult<>(new VerificationSucceeded<>(), visited.size(), visited.coverage(), visited.collisionProbability());
     }
 
-    private Set<List<String>> addInitializations(Set<List<String>> initializations, Set<List<String>> toAdd) {
+    static Set<List<String>> addInitializations(Set<List<String>> initializations, Set<List<String>> toAdd) {
         Set<List<String>> result = new HashSet<>();
         if (initializations.isEmpty()) {
             return toAdd;
@@ -480,138 +703,97 @@ public class FvmFacadeImpl implements FvmFacade {
         return result;
     }
 
-    private <L> Set<List<L>> addInitialLocations(Set<List<L>> initialLocations, Set<L> toAdd) {
-        Set<List<L>> result = new HashSet<>();
-
-        if (initialLocations.isEmpty()) {
-            result.add(new ArrayList<>(toAdd));
-            return result;
-        }
-
-        initialLocations.forEach(init1 ->
-                toAdd.forEach(init2 ->
-                        result.add(Stream.concat(init1.stream(), Stream.of(init2)).collect(Collectors.toList()))
-                )
-        );
-
-        return result;
-    }
-
-    @SuppressWarnings("unchecked")
     @Override
     public <L, A> TransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> transitionSystemFromChannelSystem(ChannelSystem<L, A> cs) {
-        TransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> ts = createTransitionSystem();
-        List<ProgramGraph<L, A>> pgs = cs.getProgramGraphs();
-        Set<List<L>> initialLocations = new HashSet<>();
-
-        for (ProgramGraph<L, A> pg : pgs) {
-            initialLocations = addInitialLocations(initialLocations, pg.getInitialLocations());
-        }
-
-        Set<List<String>> initializations = new HashSet<>(pgs.get(0).getInitalizations());
-        for (int i = 1; i < pgs.size(); i++) {
-            initializations = addInitializations(initializations, pgs.get(i).getInitalizations());
-        }
+        return transitionSystemFromChannelSystem(cs, UnaryOperator.identity());
+    }
 
-        ParserBasedActDef ad = new ParserBasedActDef();
-        for (List<L> lst : initialLocations) {
-            Consumer<Map<String, Object>> addInitial = eval -> {
-                Pair<List<L>, Map<String, Object>> newState = Pair.pair(lst, eval);
-                ts.addState(newState);
-                ts.addInitialState(newState);
-            };
+    /**
+     * Same as {@link #transitionSystemFromChannelSystem(ChannelSystem)}, reduced by symmetry:
+     * every state is replaced by {@code symmetry.apply(state)}, a representative of its orbit
+     * (see {@link ProcessSymmetry}).
+     */
+    public <L, A> TransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> transitionSystemFromChannelSystem(ChannelSystem<L, A> cs,
+                                                                                                               UnaryOperator<Pair<List<L>, Map<String, Object>>> symmetry) {
+        TransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> ts = createTransitionSystem();
+        ChannelSystemSemantics<L, A> semantics = new ChannelSystemSemantics<>(cs);
+        UnaryOperator<Pair<List<L>, Map<String, Object>>> representative = s -> {
+            Pair<List<L>, Map<String, Object>> r = symmetry.apply(s);
+            return r == s ? s : semantics.intern(r);
+        };
+
+        semantics.initialStates().stream().map(representative).forEach(s -> {
+            ts.addState(s);
+            ts.addInitialState(s);
+        });
 
-            if (initializations.isEmpty()) {
-                addInitial.accept(new HashMap<>());
-            } else {
-                Map<String, Object> eval = new HashMap<>();
-                for (List<String> init : initializations) {
-                    for (String s : init) {
-                        eval = ad.effect(eval, s);
-                    }
-                    addInitial.accept(eval);
+        Deque<Pair<List<L>, Map<String, Object>>> states = new ArrayDeque<>(ts.getInitialStates());
+        while (!states.isEmpty()) {
+            Pair<List<L>, Map<String, Object>> fromState = states.poll();
+            for (Transition<Pair<List<L>, Map<String, Object>>, A> t : semantics.successors(fromState)) {
+                Pair<List<L>, Map<String, Object>> to = representative.apply(t.getTo());
+                if (!ts.getStates().contains(to)) {
+                    ts.addState(to);
+                    states.add(to);
                 }
+                ts.addAction(t.getAction());
+                ts.addTransition(new Transition<>(fromState, t.getAction(), to));
             }
         }
 
-        Set<Pair<List<L>, Map<String, Object>>> checked = new HashSet<>();
-        Set<Pair<List<L>, Map<String, Object>>> toCheck = new HashSet<>(ts.getInitialStates());
-
-        ParserBasedCondDef cd = new ParserBasedCondDef();
-        ParserBasedInterleavingActDef iad = new ParserBasedInterleavingActDef();
-        Map<String, Object> eval;
-
-        while (!toCheck.isEmpty()) {
-            Set<Pair<List<L>, Map<String, Object>>> toBeChecked = new HashSet<>();
-            for (Pair<List<L>, Map<String, Object>> fromState : toCheck) {
-                checked.add(fromState);
-                for (int i = 0; i < pgs.size(); i++) {
-                    ProgramGraph<L, A> pg = pgs.get(i);
-                    for (PGTransition<L, A> trans : pg.getTransitions()) {
-                        if (fromState.getSecond() != null) {
-                            if (fromState.getFirst().get(i).equals(trans.getFrom()) && cd.evaluate(fromState.getSecond(), trans.getCondition()) && !iad.isOneSidedAction(trans.getAction().toString())) {
-                                eval = ad.effect(fromState.getSecond(), trans.getAction());
-                                List<L> toState = new ArrayList<>(fromState.getFirst());
-                                toState.set(i, trans.getTo());
-                                Pair<List<L>, Map<String, Object>> newState = Pair.pair(toState, eval);
-                                if (newState.getSecond() != null) {
-                                    ts.addState(newState);
-                                    if (!checked.contains(newState)) {
-                                        toBeChecked.add(newState);
-                                    }
-                                    ts.addAction(trans.getAction());
-                                    ts.addTransition(new Transition<>(fromState, trans.getAction(), newState));
-                                }
-                            }
-                        }
-                    }
+        labelChannelSystemStates(ts);
+        return ts;
+    }
 
+    /**
+     * Same as {@link #transitionSystemFromChannelSystem(ChannelSystem)}, reduced by partial-order
+     * reduction: where possible, a state is expanded only by the local steps of a single process
+     * (an ample set). The result satisfies the same LTL formulas without next over
+     * {@code visiblePropositions} as the full transition system; other propositions may be
+     * affected by the reduction.
+     *
+     * @param visiblePropositions the atomic propositions (location names and "{@code x = v}")
+     *                            the checked properties refer to.
+     */
+    public <L, A> TransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> transitionSystemFromChannelSystem(ChannelSystem<L, A> cs,
+                                                                                                               Set<String> visiblePropositions) {
+        TransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> ts = createTransitionSystem();
+        ChannelSystemSemantics<L, A> semantics = new ChannelSystemSemantics<>(cs);
+        AmpleSets<L, A> ampleSets = new AmpleSets<>(semantics, visiblePropositions);
+
+        // Depth-first, so the cycle proviso can check the search stack.
+        Set<Pair<List<L>, Map<String, Object>>> onStack = new HashSet<>();
+        Deque<Pair<Pair<List<L>, Map<String, Object>>, Iterator<Transition<Pair<List<L>, Map<String, Object>>, A>>>> stack = new ArrayDeque<>();
+        for (Pair<List<L>, Map<String, Object>> s : semantics.initialStates()) {
+            ts.addState(s);
+            ts.addInitialState(s);
+            onStack.add(s);
+            stack.push(Pair.pair(s, ampleSets.expand(s, onStack::contains).iterator()));
+            while (!stack.isEmpty()) {
+                Iterator<Transition<Pair<List<L>, Map<String, Object>>, A>> successors = stack.peek().getSecond();
+                if (!successors.hasNext()) {
+                    onStack.remove(stack.pop().getFirst());
+                    continue;
                 }
-                Set<Transition<List<L>, A>> handShakes = new HashSet<>();
-                List<List<PGTransition<L, A>>> pgTrans = new ArrayList<>();
-                for (int i = 0; i < pgs.size(); i++) {
-                    List<PGTransition<L, A>> transitionsList = new ArrayList<>();
-                    L loc = fromState.getFirst().get(i);
-                    pgs.get(i).getTransitions().stream()
-                            .filter(trans -> fromState.getSecond() != null && trans.getFrom().equals(loc) && cd.evaluate(fromState.getSecond(), trans.getCondition()))
-                            .forEach(transitionsList::add);
-                    pgTrans.add(transitionsList);
+                Transition<Pair<List<L>, Map<String, Object>>, A> t = successors.next();
+                boolean discovered = !ts.getStates().contains(t.getTo());
+                if (discovered) {
+                    ts.addState(t.getTo());
                 }
-                for (int i = 0; i < pgs.size(); i++) {
-                    for (int j = 0; j < pgs.size(); j++) {
-                        if (i != j) {
-                            for (PGTransition<L, A> pg1 : pgTrans.get(i)) {
-                                for (PGTransition<L, A> pg2 : pgTrans.get(j)) {
-                                    String act = pg1.getAction().toString() + "|" + pg2.getAction().toString();
-                                    if (iad.isMatchingAction(act)) {
-                                        List<L> tmp = new ArrayList<>(fromState.getFirst());
-                                        tmp.set(i, pg1.getTo());
-                                        tmp.set(j, pg2.getTo());
-                                        Transition<List<L>, A> newTransition = new Transition<>(fromState.getFirst(), (A) act, tmp);
-                                        handShakes.add(newTransition);
-                                    }
-                                }
-                            }
-                        }
-                    }
+                ts.addAction(t.getAction());
+                ts.addTransition(t);
+                if (discovered) {
+                    onStack.add(t.getTo());
+                    stack.push(Pair.pair(t.getTo(), ampleSets.expand(t.getTo(), onStack::contains).iterator()));
                 }
-                for (Transition<List<L>, A> tran : handShakes) {
-                    eval = iad.effect(fromState.getSecond(), tran.getAction());
-                    if (eval != null) {
-                        Pair<List<L>, Map<String, Object>> new_state = Pair.pair(tran.getTo(), eval);
-                        ts.addState(new_state);
-                        if (!checked.contains(new_state)) {
-                            toBeChecked.add(new_state);
-                        }
-                        ts.addAction(tran.getAction());
-                        ts.addTransition(new Transition<>(fromState, tran.getAction(), new_state));
-                    }
-                }
-
             }
-            toCheck = toBeChecked;
         }
 
+        labelChannelSystemStates(ts);
+        return ts;
+    }
+
+    private <L, A> void labelChannelSystemStates(TransitionSystem<Pair<List<L>, Map<String, Object>>, A, String> ts) {
         ts.getStates().forEach(s -> {
             s.first.forEach(loc -> {
                 ts.addAtomicProposition(loc.toString());
@@ -623,52 +805,75 @@ public class FvmFacadeImpl implements FvmFacade {
                 ts.addToLabel(s, ap);
             });
         });
-
-        return ts;
     }
 
     @Override
     public <Sts, Saut, A, P> TransitionSystem<Pair<Sts, Saut>, A, Saut> product(TransitionSystem<Sts, A, P> ts, Automaton<Saut, P> aut) {
         TransitionSystem<Pair<Sts, Saut>, A, Saut> result = createTransitionSystem();
+        CompiledAutomaton<Saut, P> compiled = new CompiledAutomaton<>(aut.getInitialStates(), aut.getTransitions());
+
+        // One pass over the transitions: state ids, each state's letter, and its outgoing edges.
+        Interner<Sts> states = new Interner<>();
+        IntList letters = new IntList();
+        List<IntList> targets = new ArrayList<>();
+        List<List<A>> actions = new ArrayList<>();
+        ToIntFunction<Sts> index = s -> {
+            int id = states.intern(s);
+            if (id == letters.size()) {
+                letters.add(compiled.letter(ts.getLabel(s)));
+                targets.add(new IntList());
+                actions.add(new ArrayList<>());
+            }
+            return id;
+        };
+        for (Transition<Sts, A> t : ts.getTransitions()) {
+            int from = index.applyAsInt(t.getFrom());
+            targets.get(from).add(index.applyAsInt(t.getTo()));
+            actions.get(from).add(t.getAction());
+        }
 
-        ts.getInitialStates().forEach(s ->
-                aut.getInitialStates().forEach(q0 -> {
-                    Set<Pair<Sts, Saut>> initials = aut.nextStates(q0, ts.getLabel(s)).stream()
-                            .map(q -> Pair.pair(s, q))
-                            .collect(Collectors.toSet());
-                    initials.forEach(result::addState);
-                    initials.forEach(result::addInitialState);
-                }));
-
-        List<Pair<Sts, Saut>> checked = new ArrayList<>();
-        List<Pair<Sts, Saut>> toCheck = new ArrayList<>(result.getInitialStates());
+        Set<Long> visited = new HashSet<>();
+        IntList queueTs = new IntList();
+        IntList queueAut = new IntList();
+        for (Sts s : ts.getInitialStates()) {
+            int sId = index.applyAsInt(s);
+            for (int q0 : compiled.initialStates()) {
+                for (int q : compiled.next(q0, letters.get(sId))) {
+                    Pair<Sts, Saut> initial = Pair.pair(s, compiled.state(q));
+                    result.addState(initial);
+                    result.addInitialState(initial);
+                    if (visited.add((long) sId << 32 | q)) {
+                        queueTs.add(sId);
+                        queueAut.add(q);
+                    }
+                }
+            }
+        }
 
-        while (!toCheck.isEmpty()) {
-            Pair<Sts, Saut> current = toCheck.get(0);
-            ts.getTransitions().forEach(trans -> {
-                if (trans.getFrom().equals(current.getFirst())) {
-                    Set<Saut> next = aut.nextStates(current.getSecond(), ts.getLabel(trans.getTo()));
-                    if(next != null){
-                        Set<Pair<Sts, Saut>> newStates = aut.nextStates(current.getSecond(), ts.getLabel(trans.getTo())).stream()
-                                .map(q -> Pair.pair(trans.getTo(), q))
-                                .collect(Collectors.toSet());
-                        if (!newStates.isEmpty()) {
-                            result.addAction(trans.getAction());
-                            newStates.forEach(s -> {
-                                result.addState(s);
-                                result.addTransition(new Transition<>(current, trans.getAction(), s));
-                                result.addAtomicProposition(s.getSecond());
-                                result.addToLabel(s, s.getSecond());
-                                if (!toCheck.contains(s) && !checked.contains(s)) {
-                                    toCheck.add(s);
-                                }
-                            });
-                        }
+        for (int head = 0; head < queueTs.size(); head++) {
+            int s = queueTs.get(head);
+            int q = queueAut.get(head);
+            Pair<Sts, Saut> current = Pair.pair(states.value(s), compiled.state(q));
+            IntList to = targets.get(s);
+            List<A> on = actions.get(s);
+            for (int i = 0; i < to.size(); i++) {
+                int t = to.get(i);
+                int[] next = compiled.next(q, letters.get(t));
+                if (next.length > 0) {
+                    result.addAction(on.get(i));
+                }
+                for (int r : next) {
+                    Pair<Sts, Saut> target = Pair.pair(states.value(t), compiled.state(r));
+                    if (visited.add((long) t << 32 | r)) {
+                        result.addState(target);
+                        queueTs.add(t);
+                        queueAut.add(r);
                     }
+                    result.addTransition(new Transition<>(current, on.get(i), target));
+                    result.addAtomicProposition(target.getSecond());
+                    result.addToLabel(target, target.getSecond());
                 }
-            });
-            toCheck.remove(current);
-            checked.add(current);
+            }
         }
         return result;
     }
@@ -746,85 +951,162 @@ public class FvmFacadeImpl implements FvmFacade {
 
     @Override
     public <S, A, P, Saut> VerificationResult<S> verifyAnOmegaRegularProperty(TransitionSystem<S, A, P> ts, Automaton<Saut, P> aut) {
-        TransitionSystem<Pair<S, Saut>, A, Saut> product = product(ts,aut);
-        Set<Saut> accStates = aut.getAcceptingStates();
+        return verifyAnOmegaRegularProperty(ts, aut, EmptinessCheck.NESTED_DFS);
+    }
 
-        for(Pair<S, Saut> s0 : product.getInitialStates()){
-            for(Pair<S, Saut> s : DepthFirstSearch(s0, product, accStates)){
-                List<Pair<S, Saut>> reachable = DepthFirstSearch(s, product, accStates);
-                if(reachable.contains(s)){
-                    List<S> fromStart = path(s0, s, product);
-                    List<S> circle = path(s, s, product);
-                    circle.remove(0);
+    public <S, A, P, Saut> VerificationResult<S> verifyAnOmegaRegularProperty(TransitionSystem<S, A, P> ts, Automaton<Saut, P> aut, EmptinessCheck algorithm) {
+        return verifyAnOmegaRegularProperty(ts, aut, algorithm, false);
+    }
 
-                    VerificationFailed<S> failed = new VerificationFailed<>();
-                    failed.setPrefix(fromStart);
-                    failed.setCycle(circle);
+    /**
+     * The automaton is {@link #reduce reduced} before the product is built. To check several
+     * systems against one automaton, or to report what the reduction removed, call
+     * {@link #reduce} once and use
+     * {@link #verifyAnOmegaRegularProperty(TransitionSystem, AutomatonReduction, EmptinessCheck, boolean)}.
+     *
+     * @param shortestCounterexample if set, a violation is reported with a shortest prefix to
+     *                               the accepting state found, and a shortest cycle through it
+     */
+    public <S, A, P, Saut> VerificationResult<S> verifyAnOmegaRegularProperty(TransitionSystem<S, A, P> ts, Automaton<Saut, P> aut, EmptinessCheck algorithm,
+                                                                              boolean shortestCounterexample) {
+        return verifyAnOmegaRegularProperty(ts, reduce(aut), algorithm, shortestCounterexample);
+    }
 
-                    return failed;
-                }
-            }
+    /**
+     * Checks {@code ts} against the automaton of an existing {@code reduction}, which is not
+     * recomputed.
+     */
+    public <S, A, P, Saut> VerificationResult<S> verifyAnOmegaRegularProperty(TransitionSystem<S, A, P> ts, AutomatonReduction<Saut, P> reduction,
+                                                                              EmptinessCheck algorithm, boolean shortestCounterexample) {
+        Automaton<Saut, P> reduced = reduction.getAutomaton();
+        ProductGraph<S, Saut, P> product = new ProductGraph<>(ts, s -> post(ts, s), reduced);
+        Predicate<Long> accepting = product.inAutomatonStates(reduced.getAcceptingStates());
+
+        Lasso<Long> lasso = algorithm == EmptinessCheck.SCC ?
+                new SccEmptinessCheck<>(product, accepting).findAcceptingCycle() :
+                new NestedDepthFirstSearch<>(product, accepting).findAcceptingCycle();
+        if (lasso != null && shortestCounterexample) {
+            lasso = ShortestPaths.shorten(product, lasso, accepting);
         }
-
-        return new VerificationSucceeded<>();
+        return verificationResult(lasso == null ? null : lasso.map(product::tsState));
     }
 
-    private <S, A, P, Saut> List<Pair<S,Saut>> DepthFirstSearch(Pair<S,Saut> start, TransitionSystem<Pair<S,Saut>, A, P> ts, Set<Saut> badStates){
-        List<Pair<S,Saut>> result = new ArrayList<>();
+    /**
+     * Prunes {@code aut} and merges simulation-equivalent states, without changing its language.
+     * See {@link AutomatonReduction}.
+     */
+    public <Saut, P> AutomatonReduction<Saut, P> reduce(Automaton<Saut, P> aut) {
+        return AutomatonReduction.of(aut);
+    }
 
-        ArrayList<Pair<S,Saut>> toCheck = new ArrayList<>(ts.getStates());
-        Stack<Pair<S,Saut>> stack = new Stack<>();
+    /**
+     * Checks {@code ts} against a generalized Buchi automaton directly, without
+     * {@link #GNBA2NBA(MultiColorAutomaton) degeneralizing} it first: a run is accepting if it
+     * visits every color infinitely often (every run, if there are no colors).
+     */
+    public <S, A, P, Saut> VerificationResult<S> verifyAnOmegaRegularProperty(TransitionSystem<S, A, P> ts, MultiColorAutomaton<Saut, P> aut) {
+        ProductGraph<S, Saut, P> product = new ProductGraph<>(ts, s -> post(ts, s), aut);
+        List<Predicate<Long>> colors = aut.getColors().stream()
+                .map(color -> product.inAutomatonStates(aut.getAcceptingStates(color)))
+                .collect(Collectors.toList());
+        Function<Long, BitSet> acceptance = node -> {
+            BitSet sets = new BitSet(colors.size());
+            for (int i = 0; i < colors.size(); i++) {
+                sets.set(i, colors.get(i).test(node));
+            }
+            return sets;
+        };
 
-        stack.push(start);
-        while(!stack.isEmpty()){
-            Pair<S,Saut> state = stack.pop();
-            toCheck.remove(state);
-            ts.getTransitions().stream()
-                    .filter(trans -> trans.getFrom().equals(state))
-                    .forEach(trans -> {
-                        if(toCheck.contains(trans.getTo()) && !stack.contains(trans.getTo())) {
-                            stack.push(trans.getTo());
-                        }
-                        if(badStates.contains(trans.getTo().getSecond()) && !result.contains(trans.getTo())) {
-                            result.add(trans.getTo());
-                        }
+        Lasso<Long> lasso = new SccEmptinessCheck<>(product, acceptance, colors.size()).findAcceptingCycle();
+        return verificationResult(lasso == null ? null : lasso.map(product::tsState));
+    }
 
-                    });
-        }
-        return result;
+    /**
+     * Same as {@link #verifyAnOmegaRegularProperty(TransitionSystem, Automaton)}, with the product
+     * explored on the fly under bitstate hashing, so product states are never stored.
+     */
+    public <S, A, P, Saut> BitstateResult<S> verifyAnOmegaRegularPropertyBitstate(TransitionSystem<S, A, P> ts, Automaton<Saut, P> aut,
+                                                                                 int log2Bits, int hashes) {
+        return bitstateEmptinessCheck(ts.getInitialStates(), s -> post(ts, s), ts::getLabel, aut, log2Bits, hashes);
     }
 
-    private <S, A, P, Saut> List<S> path(Pair<S,Saut> start, Pair<S,Saut> end, TransitionSystem<Pair<S,Saut>, A, P> ts){
-        ArrayList<Pair<S,Saut>> toCheck = new ArrayList<>(ts.getStates());
-        Map<Pair<S,Saut>,List<List<S>>> paths = new HashMap<>();
-        paths.put(start, Collections.singletonList(Collections.singletonList(start.getFirst())));
-        Stack<Pair<S,Saut>> stack = new Stack<>();
-        stack.push(start);
+    private <S, P, Saut> BitstateResult<S> bitstateEmptinessCheck(Collection<S> initial, Function<S, ? extends Collection<S>> post,
+                                                                  Function<S, Set<P>> labeling, Automaton<Saut, P> aut, int log2Bits, int hashes) {
+        ImplicitGraph<Pair<S, Saut>> product = new ImplicitGraph<Pair<S, Saut>>() {
+            @Override
+            public Collection<Pair<S, Saut>> initialNodes() {
+                List<Pair<S, Saut>> result = new ArrayList<>();
+                for (S s : initial) {
+                    aut.getInitialStates().forEach(q0 -> successors(s, q0, result));
+                }
+                return result;
+            }
 
-        while(!stack.isEmpty()){
-            Pair<S,Saut> state = stack.pop();
-            toCheck.remove(state);
-            ts.getTransitions().stream()
-                    .filter(trans -> trans.getFrom().equals(state))
-                    .forEach(trans ->{
-                        if(toCheck.contains(trans.getTo()) && !stack.contains(trans.getTo())){
-                            stack.push(trans.getTo());
-                        }
-                        List<List<S>> toAdd = new ArrayList<>();
-                        paths.get(trans.getFrom()).forEach(lst ->{
-                            List<S> newList = new ArrayList<>(lst);
-                            newList.add(trans.getTo().first);
-                            toAdd.add(newList);
-                        });
+            @Override
+            public Collection<Pair<S, Saut>> successors(Pair<S, Saut> node) {
+                List<Pair<S, Saut>> result = new ArrayList<>();
+                post.apply(node.getFirst()).forEach(s -> successors(s, node.getSecond(), result));
+                return result;
+            }
 
-                        paths.put(trans.getTo(), toAdd);
-                    });
+            private void successors(S s, Saut q, List<Pair<S, Saut>> result) {
+                Set<Saut> next = aut.nextStates(q, labeling.apply(s));
+                if (next != null) {
+                    next.forEach(q1 -> result.add(Pair.pair(s, q1)));
+                }
+            }
+        };
+        Set<Saut> accStates = aut.getAcceptingStates();
+        BitstateVisitedSet<Pair<S, Saut>> outer = new BitstateVisitedSet<>(log2Bits, hashes, 0);
+        BitstateVisitedSet<Pair<S, Saut>> inner = new BitstateVisitedSet<>(log2Bits, hashes, 1);
+        Lasso<Pair<S, Saut>> lasso = new NestedDepthFirstSearch<>(product, p -> accStates.contains(p.getSecond()), outer, inner)
+                .findAcceptingCycle();
+        return new BitstateResult<>(verificationResult(lasso == null ? null : lasso.map(Pair::getFirst)),
+                outer.size(), outer.coverage(), outer.collisionProbability());
+    }
+
+    private <S> VerificationResult<S> verificationResult(Lasso<S> counterexample) {
+        if (counterexample == null) {
+            return new VerificationSucceeded<>();
         }
-        return paths.get(end).get(0);
+
+        VerificationFailed<S> failed = new VerificationFailed<>();
+        failed.setPrefix(counterexample.getPrefix());
+        failed.setCycle(counterexample.getCycle());
+        return failed;
     }
 
+    /**
+     * Translations are cached across facade instances (see {@link #getTranslationCache()}).
+     */
     @Override
     public <L> Automaton<?, L> LTL2NBA(LTL<L> ltl) {
+        return TRANSLATIONS.nba(ltl, canonical -> GNBA2NBA(LtlTableau.translate(canonical)));
+    }
+
+    /**
+     * The cache behind {@link #LTL2NBA} and {@link #LTL2GNBA}, shared by all facade instances.
+     */
+    public LtlTranslationCache getTranslationCache() {
+        return TRANSLATIONS;
+    }
+
+    /**
+     * The generalized automaton {@link #LTL2NBA(LTL)} degeneralizes. Checking against it with
+     * {@link #verifyAnOmegaRegularProperty(TransitionSystem, MultiColorAutomaton)} avoids the
+     * blow-up by the number of colors. Built by an on-the-fly tableau (see {@link LtlTableau}),
+     * so only consistent, reachable states are created.
+     */
+    public <L> MultiColorAutomaton<Integer, L> LTL2GNBA(LTL<L> ltl) {
+        return TRANSLATIONS.gnba(ltl, LtlTableau::translate);
+    }
+
+    /**
+     * The closure construction {@link #LTL2GNBA} used before the tableau: every consistent
+     * subset of the closure is a state. Exponential in the closure size; kept for
+     * {@link LtlTranslationBenchmark}.
+     */
+    <L> MultiColorAutomaton<Set<LTL<L>>, L> closureLTL2GNBA(LTL<L> ltl) {
         MultiColorAutomaton<Set<LTL<L>>, L> aut = new MultiColorAutomaton<>();
         Set<LTL<L>> exprs = new HashSet<>();
         Queue<LTL<L>> toCheck = new ArrayDeque<>();
@@ -925,7 +1207,7 @@ public class FvmFacadeImpl implements FvmFacade {
         if (aut.getColors().isEmpty()) {
             states.forEach(s -> aut.setAccepting(s, 1));
         }
-        return GNBA2NBA(aut);
+        return aut;
     }
 
     @Override
@@ -0,0 +1,57 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only {@code Set} view of the values whose ids are set in a {@link BitSet}.
+ */
+class IdSet<T> extends AbstractSet<T> {
+    private final Interner<T> interner;
+    private final BitSet members;
+
+    IdSet(Interner<T> interner, BitSet members) {
+        this.interner = interner;
+        this.members = members;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int id = interner.id(o);
+        return id >= 0 && members.get(id);
+    }
+
+    @Override
+    public int size() {
+        return members.cardinality();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int next = members.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public T next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                T value = interner.value(next);
+                next = members.nextSetBit(next + 1);
+                return value;
+            }
+        };
+    }
+}
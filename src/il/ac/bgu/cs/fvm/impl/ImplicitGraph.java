@@ -0,0 +1,13 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.Collection;
+
+/**
+ * A graph whose nodes are generated on demand, e.g. a product that is never materialised.
+ */
+interface ImplicitGraph<N> {
+
+    Collection<N> initialNodes();
+
+    Collection<N> successors(N node);
+}
@@ -0,0 +1,49 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A transition system that numbers its states with dense {@code int} ids and indexes its edges,
+ * so {@link FvmFacadeImpl} and {@link ProductGraph} can avoid scanning all transitions.
+ */
+interface IndexedTransitionSystem<S, A, P> extends TransitionSystem<S, A, P> {
+
+    /**
+     * @return the id of {@code s} if it is a state of this system, -1 otherwise.
+     */
+    int stateId(Object s);
+
+    S state(int id);
+
+    int[] initialStateIds();
+
+    /**
+     * Ids of the successors of state {@code id}, possibly with repetitions (one per action).
+     */
+    int[] successorIds(int id);
+
+    Set<P> label(int id);
+
+    Set<S> post(S s);
+
+    Set<S> post(S s, A a);
+
+    Set<S> pre(S s);
+
+    Set<S> pre(S s, A a);
+
+    /**
+     * Outgoing edges of {@code s}, grouped by action.
+     */
+    Map<A, Set<S>> postByAction(S s);
+
+    /**
+     * @return {@code true} iff no state has two successors via the same action.
+     */
+    boolean hasUniqueSuccessorPerAction();
+
+    Set<S> reach();
+}
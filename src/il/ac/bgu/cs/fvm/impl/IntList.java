@@ -0,0 +1,57 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of primitive {@code int}s.
+ */
+class IntList {
+    private int[] data;
+    private int size;
+
+    IntList() {
+        this(4);
+    }
+
+    IntList(int capacity) {
+        data = new int[Math.max(capacity, 1)];
+    }
+
+    void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size * 2);
+        }
+        data[size++] = value;
+    }
+
+    int get(int index) {
+        return data[index];
+    }
+
+    void set(int index, int value) {
+        data[index] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes {@code count} values starting at {@code index}, moving the last {@code count}
+     * values into their place. Order is not preserved.
+     */
+    void removeBlock(int index, int count) {
+        for (int i = 0; i < count; i++) {
+            data[index + i] = data[size - count + i];
+        }
+        size -= count;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
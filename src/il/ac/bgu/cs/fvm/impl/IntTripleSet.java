@@ -0,0 +1,106 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.Arrays;
+
+/**
+ * A hash set of {@code (int, int, int)} triples, stored flat in a single {@code int[]} with
+ * linear probing. Components must be non-negative.
+ */
+class IntTripleSet {
+    private static final int EMPTY = -1;
+
+    private int[] table;
+    private int mask;
+    private int size;
+
+    IntTripleSet() {
+        allocate(16);
+    }
+
+    boolean contains(int a, int b, int c) {
+        return find(a, b, c) >= 0;
+    }
+
+    boolean add(int a, int b, int c) {
+        if (find(a, b, c) >= 0) {
+            return false;
+        }
+        if ((size + 1) * 2 > mask + 1) {
+            grow();
+        }
+        int slot = home(a, b, c);
+        while (table[3 * slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        put(slot, a, b, c);
+        size++;
+        return true;
+    }
+
+    boolean remove(int a, int b, int c) {
+        int slot = find(a, b, c);
+        if (slot < 0) {
+            return false;
+        }
+        // Backward-shift deletion keeps probe sequences intact without tombstones.
+        int hole = slot;
+        for (int next = (hole + 1) & mask; table[3 * next] != EMPTY; next = (next + 1) & mask) {
+            int h = home(table[3 * next], table[3 * next + 1], table[3 * next + 2]);
+            boolean movable = hole <= next ? (h <= hole || h > next) : (h <= hole && h > next);
+            if (movable) {
+                put(hole, table[3 * next], table[3 * next + 1], table[3 * next + 2]);
+                hole = next;
+            }
+        }
+        table[3 * hole] = EMPTY;
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int find(int a, int b, int c) {
+        for (int slot = home(a, b, c); table[3 * slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (table[3 * slot] == a && table[3 * slot + 1] == b && table[3 * slot + 2] == c) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int home(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b * 0x85EBCA77 + c * 0xC2B2AE3D;
+        h ^= h >>> 15;
+        h *= 0x2C1B3C6D;
+        h ^= h >>> 13;
+        return h & mask;
+    }
+
+    private void put(int slot, int a, int b, int c) {
+        table[3 * slot] = a;
+        table[3 * slot + 1] = b;
+        table[3 * slot + 2] = c;
+    }
+
+    private void grow() {
+        int[] old = table;
+        allocate((mask + 1) * 2);
+        for (int i = 0; i < old.length; i += 3) {
+            if (old[i] != EMPTY) {
+                int slot = home(old[i], old[i + 1], old[i + 2]);
+                while (table[3 * slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                put(slot, old[i], old[i + 1], old[i + 2]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new int[3 * capacity];
+        Arrays.fill(table, EMPTY);
+        mask = capacity - 1;
+    }
+}
@@ -0,0 +1,47 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns dense {@code int} ids (0, 1, 2, ...) to values, in first-seen order.
+ * Ids are never reused, so they stay valid for the interner's lifetime.
+ */
+class Interner<T> {
+    private final Map<T, Integer> ids = new HashMap<>();
+    private final List<T> values = new ArrayList<>();
+
+    /**
+     * @return the id of {@code value}, assigning the next free one if it is new.
+     */
+    int intern(T value) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            ids.put(value, id);
+            values.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of {@code value}, or -1 if it was never interned.
+     */
+    int id(Object value) {
+        Integer id = ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    T value(int id) {
+        return values.get(id);
+    }
+
+    /**
+     * @return the number of ids assigned so far; every id is below it.
+     */
+    int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,33 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * An infinite path of the form {@code prefix . cycle^omega}. The prefix starts at an
+ * initial node and ends at the cycle's entry node; the cycle lists the nodes after the
+ * entry node, ending with the entry node itself.
+ */
+class Lasso<N> {
+    private final List<N> prefix;
+    private final List<N> cycle;
+
+    Lasso(List<N> prefix, List<N> cycle) {
+        this.prefix = prefix;
+        this.cycle = cycle;
+    }
+
+    List<N> getPrefix() {
+        return prefix;
+    }
+
+    List<N> getCycle() {
+        return cycle;
+    }
+
+    <M> Lasso<M> map(Function<N, M> f) {
+        return new Lasso<>(prefix.stream().map(f).collect(Collectors.toList()),
+                cycle.stream().map(f).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,324 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.automata.MultiColorAutomaton;
+import il.ac.bgu.cs.fvm.ltl.AP;
+import il.ac.bgu.cs.fvm.ltl.And;
+import il.ac.bgu.cs.fvm.ltl.LTL;
+import il.ac.bgu.cs.fvm.ltl.Next;
+import il.ac.bgu.cs.fvm.ltl.Not;
+import il.ac.bgu.cs.fvm.ltl.TRUE;
+import il.ac.bgu.cs.fvm.ltl.Until;
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * On-the-fly tableau translation of LTL to a generalized Buchi automaton, after Gerth, Peled,
+ * Vardi and Wolper, "Simple on-the-fly automatic verification of linear temporal logic".
+ * <p>
+ * The formula is put in negation normal form, with {@code or} and {@code release} as duals of
+ * {@code and} and {@code until}. A node is expanded by splitting on disjunctions until it holds
+ * only literals and obligations for the next step; nodes with the same formulas now and next
+ * are merged. Only consistent nodes reachable from the initial one are created, instead of all
+ * subsets of the closure.
+ * <p>
+ * The result has the shape {@link FvmFacadeImpl#LTL2GNBA} always had: states are nodes, every
+ * outgoing transition of a node reads a letter (a set of the formula's propositions) that
+ * agrees with the node's literals, and a node is initial if it was expanded from the formula
+ * itself. Each until {@code a U b} gives one color: the nodes without it, or with {@code b}.
+ */
+final class LtlTableau<L> {
+    private enum Kind {
+        TRUE, FALSE, AP, NOT_AP, AND, OR, NEXT, UNTIL, RELEASE
+    }
+
+    /**
+     * A formula in negation normal form; interned, so every formula has a dense id.
+     */
+    private static final class Formula<L> {
+        final Kind kind;
+        final L name;
+        final int left;
+        final int right;
+
+        Formula(Kind kind, L name, int left, int right) {
+            this.kind = kind;
+            this.name = name;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Formula)) {
+                return false;
+            }
+            Formula<?> that = (Formula<?>) o;
+            return kind == that.kind && left == that.left && right == that.right && Objects.equals(name, that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, name, left, right);
+        }
+    }
+
+    /**
+     * A tableau node under expansion: formulas still to process, formulas that hold now, and
+     * formulas that must hold in the next step.
+     */
+    private static final class Node {
+        final BitSet pending;
+        final BitSet now;
+        final BitSet next;
+        final Set<Integer> incoming;
+
+        Node(BitSet pending, BitSet now, BitSet next, Set<Integer> incoming) {
+            this.pending = pending;
+            this.now = now;
+            this.next = next;
+            this.incoming = incoming;
+        }
+
+        Node copy() {
+            return new Node((BitSet) pending.clone(), (BitSet) now.clone(), (BitSet) next.clone(), new HashSet<>(incoming));
+        }
+    }
+
+    private static final int INITIAL = -1;
+
+    private final List<Formula<L>> formulas = new ArrayList<>();
+    private final Map<Formula<L>, Integer> formulaIds = new HashMap<>();
+    private final List<L> propositions = new ArrayList<>();
+
+    // Expanded nodes, by id, and their ids by (now, next).
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<Pair<BitSet, BitSet>, Integer> nodeIds = new HashMap<>();
+
+    private LtlTableau() {
+    }
+
+    static <L> MultiColorAutomaton<Integer, L> translate(LTL<L> ltl) {
+        return new LtlTableau<L>().build(ltl);
+    }
+
+    private MultiColorAutomaton<Integer, L> build(LTL<L> ltl) {
+        int root = normalize(ltl, false);
+
+        Deque<Node> work = new ArrayDeque<>();
+        BitSet start = new BitSet();
+        start.set(root);
+        work.push(new Node(start, new BitSet(), new BitSet(), new HashSet<>(Collections.singleton(INITIAL))));
+        while (!work.isEmpty()) {
+            expand(work.pop(), work);
+        }
+
+        List<BitSet> colors = new ArrayList<>();
+        for (int f = 0; f < formulas.size(); f++) {
+            if (formulas.get(f).kind == Kind.UNTIL) {
+                BitSet accepting = new BitSet();
+                for (int n = 0; n < nodes.size(); n++) {
+                    BitSet now = nodes.get(n).now;
+                    accepting.set(n, !now.get(f) || now.get(formulas.get(f).right));
+                }
+                colors.add(accepting);
+            }
+        }
+        // A color without states cannot be set on the automaton, and means no run is accepting.
+        boolean empty = colors.stream().anyMatch(BitSet::isEmpty);
+
+        MultiColorAutomaton<Integer, L> aut = new MultiColorAutomaton<>();
+        for (int n = 0; n < nodes.size(); n++) {
+            aut.addState(n);
+            if (!empty && nodes.get(n).incoming.contains(INITIAL)) {
+                aut.setInitial(n);
+            }
+        }
+        List<List<Set<L>>> letters = new ArrayList<>(Collections.nCopies(nodes.size(), null));
+        for (int m = 0; m < nodes.size(); m++) {
+            for (int n : nodes.get(m).incoming) {
+                if (n != INITIAL) {
+                    if (letters.get(n) == null) {
+                        letters.set(n, letters(nodes.get(n).now));
+                    }
+                    for (Set<L> letter : letters.get(n)) {
+                        aut.addTransition(n, letter, m);
+                    }
+                }
+            }
+        }
+
+        for (int color = 0; color < colors.size(); color++) {
+            BitSet accepting = colors.get(color);
+            for (int n = accepting.nextSetBit(0); n >= 0; n = accepting.nextSetBit(n + 1)) {
+                aut.setAccepting(n, color + 1);
+            }
+        }
+        if (colors.isEmpty()) {
+            for (int n = 0; n < nodes.size(); n++) {
+                aut.setAccepting(n, 1);
+            }
+        }
+        return aut;
+    }
+
+    private void expand(Node node, Deque<Node> work) {
+        int f = node.pending.nextSetBit(0);
+        if (f < 0) {
+            Pair<BitSet, BitSet> key = Pair.pair(node.now, node.next);
+            Integer existing = nodeIds.get(key);
+            if (existing != null) {
+                nodes.get(existing).incoming.addAll(node.incoming);
+            } else {
+                int id = nodes.size();
+                nodes.add(node);
+                nodeIds.put(key, id);
+                Set<Integer> incoming = new HashSet<>();
+                incoming.add(id);
+                work.push(new Node((BitSet) node.next.clone(), new BitSet(), new BitSet(), incoming));
+            }
+            return;
+        }
+
+        node.pending.clear(f);
+        Formula<L> formula = formulas.get(f);
+        switch (formula.kind) {
+            case FALSE:
+                return;
+            case TRUE:
+                break;
+            case AP:
+            case NOT_AP:
+                if (node.now.get(negation(f))) {
+                    return;
+                }
+                break;
+            case AND:
+                require(node, formula.left);
+                require(node, formula.right);
+                break;
+            case NEXT:
+                node.next.set(formula.left);
+                break;
+            case OR:
+            case UNTIL:
+            case RELEASE: {
+                // Left branch: OR takes the left disjunct, UNTIL and RELEASE postpone themselves.
+                Node other = node.copy();
+                other.now.set(f);
+                if (formula.kind == Kind.OR) {
+                    require(node, formula.left);
+                    require(other, formula.right);
+                } else if (formula.kind == Kind.UNTIL) {
+                    require(node, formula.left);
+                    node.next.set(f);
+                    require(other, formula.right);
+                } else {
+                    require(node, formula.right);
+                    node.next.set(f);
+                    require(other, formula.left);
+                    require(other, formula.right);
+                }
+                work.push(other);
+                break;
+            }
+        }
+        node.now.set(f);
+        work.push(node);
+    }
+
+    private static void require(Node node, int f) {
+        if (!node.now.get(f)) {
+            node.pending.set(f);
+        }
+    }
+
+    /**
+     * @return the id of the complementary literal of literal {@code f}.
+     */
+    private int negation(int f) {
+        Formula<L> formula = formulas.get(f);
+        return intern(formula.kind == Kind.AP ? Kind.NOT_AP : Kind.AP, formula.name, -1, -1);
+    }
+
+    /**
+     * All sets of the formula's propositions that agree with the literals in {@code now}.
+     */
+    private List<Set<L>> letters(BitSet now) {
+        Set<L> positive = new HashSet<>();
+        Set<L> negative = new HashSet<>();
+        for (int f = now.nextSetBit(0); f >= 0; f = now.nextSetBit(f + 1)) {
+            Formula<L> formula = formulas.get(f);
+            if (formula.kind == Kind.AP) {
+                positive.add(formula.name);
+            } else if (formula.kind == Kind.NOT_AP) {
+                negative.add(formula.name);
+            }
+        }
+        List<Set<L>> result = new ArrayList<>();
+        result.add(positive);
+        for (L p : propositions) {
+            if (!positive.contains(p) && !negative.contains(p)) {
+                int size = result.size();
+                for (int i = 0; i < size; i++) {
+                    Set<L> with = new HashSet<>(result.get(i));
+                    with.add(p);
+                    result.add(with);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the id of {@code ltl} (negated if {@code negated}) in negation normal form.
+     */
+    private int normalize(LTL<L> ltl, boolean negated) {
+        if (ltl instanceof TRUE) {
+            return intern(negated ? Kind.FALSE : Kind.TRUE, null, -1, -1);
+        }
+        if (ltl instanceof AP) {
+            L name = ((AP<L>) ltl).getName();
+            if (!propositions.contains(name)) {
+                propositions.add(name);
+            }
+            return intern(negated ? Kind.NOT_AP : Kind.AP, name, -1, -1);
+        }
+        if (ltl instanceof Not) {
+            return normalize(((Not<L>) ltl).getInner(), !negated);
+        }
+        if (ltl instanceof And) {
+            And<L> and = (And<L>) ltl;
+            return intern(negated ? Kind.OR : Kind.AND, null, normalize(and.getLeft(), negated), normalize(and.getRight(), negated));
+        }
+        if (ltl instanceof Next) {
+            return intern(Kind.NEXT, null, normalize(((Next<L>) ltl).getInner(), negated), -1);
+        }
+        if (ltl instanceof Until) {
+            Until<L> until = (Until<L>) ltl;
+            return intern(negated ? Kind.RELEASE : Kind.UNTIL, null, normalize(until.getLeft(), negated), normalize(until.getRight(), negated));
+        }
+        throw new IllegalArgumentException("Unsupported LTL formula: " + ltl);
+    }
+
+    private int intern(Kind kind, L name, int left, int right) {
+        Formula<L> formula = new Formula<>(kind, name, left, right);
+        Integer id = formulaIds.get(formula);
+        if (id == null) {
+            id = formulas.size();
+            formulas.add(formula);
+            formulaIds.put(formula, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,122 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.automata.MultiColorAutomaton;
+import il.ac.bgu.cs.fvm.ltl.AP;
+import il.ac.bgu.cs.fvm.ltl.And;
+import il.ac.bgu.cs.fvm.ltl.LTL;
+import il.ac.bgu.cs.fvm.ltl.Next;
+import il.ac.bgu.cs.fvm.ltl.Not;
+import il.ac.bgu.cs.fvm.ltl.Until;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Compares the tableau {@link FvmFacadeImpl#LTL2GNBA} with the closure construction it replaced,
+ * on formula families of growing size. The closure construction is skipped once its closure
+ * would have more than {@link #MAX_CLOSURE} formulas (2^closure candidate states).
+ */
+public class LtlTranslationBenchmark {
+    private static final int MAX_CLOSURE = 12;
+
+    public static void main(String[] args) {
+        FvmFacadeImpl fvm = new FvmFacadeImpl();
+
+        System.out.println("G F p1 && ... && G F pn (fairness)");
+        run(fvm, 6, n -> {
+            LTL<String> f = always(eventually(ap(1)));
+            for (int i = 2; i <= n; i++) {
+                f = LTL.and(f, always(eventually(ap(i))));
+            }
+            return f;
+        });
+
+        System.out.println("p1 U (p2 U (... U pn))");
+        run(fvm, 10, n -> {
+            LTL<String> f = ap(n);
+            for (int i = n - 1; i >= 1; i--) {
+                f = LTL.until(ap(i), f);
+            }
+            return f;
+        });
+
+        System.out.println("G (p1 -> X F p2) && ... (response chain)");
+        run(fvm, 4, n -> {
+            LTL<String> f = LTL.true_();
+            for (int i = 1; i <= n; i++) {
+                f = LTL.and(f, always(LTL.not(LTL.and(ap(i), LTL.not(LTL.next(eventually(ap(i + 1))))))));
+            }
+            return f;
+        });
+    }
+
+    private static void run(FvmFacadeImpl fvm, int maxN, IntFunction<LTL<String>> family) {
+        System.out.println(String.format("%4s %8s %14s %10s %14s %10s", "n", "closure", "closure states", "ms", "tableau states", "ms"));
+        for (int n = 1; n <= maxN; n++) {
+            LTL<String> ltl = family.apply(n);
+            int closure = closureSize(ltl);
+            String closureStates = "-";
+            String closureMs = "skipped";
+            if (closure <= MAX_CLOSURE) {
+                long[] ms = new long[1];
+                closureStates = String.valueOf(time(() -> fvm.closureLTL2GNBA(ltl), ms).getTransitions().size());
+                closureMs = String.valueOf(ms[0]);
+            }
+            long[] ms = new long[1];
+            MultiColorAutomaton<Integer, String> tableau = time(() -> fvm.LTL2GNBA(ltl), ms);
+            System.out.println(String.format("%4d %8d %14s %10s %14d %10d", n, closure, closureStates, closureMs,
+                    tableau.getTransitions().size(), ms[0]));
+        }
+        System.out.println();
+    }
+
+    private static <T> T time(Supplier<T> translation, long[] ms) {
+        long start = System.nanoTime();
+        T result = translation.get();
+        ms[0] = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Number of distinct non-negated subformulas, which the closure construction enumerates
+     * subsets of.
+     */
+    private static int closureSize(LTL<String> ltl) {
+        Set<LTL<String>> closure = new HashSet<>();
+        Deque<LTL<String>> toCheck = new ArrayDeque<>();
+        toCheck.push(ltl);
+        while (!toCheck.isEmpty()) {
+            LTL<String> f = toCheck.pop();
+            if (f instanceof Not) {
+                toCheck.push(((Not<String>) f).getInner());
+            } else if (closure.add(f)) {
+                if (f instanceof Next) {
+                    toCheck.push(((Next<String>) f).getInner());
+                } else if (f instanceof And) {
+                    toCheck.push(((And<String>) f).getLeft());
+                    toCheck.push(((And<String>) f).getRight());
+                } else if (f instanceof Until) {
+                    toCheck.push(((Until<String>) f).getLeft());
+                    toCheck.push(((Until<String>) f).getRight());
+                }
+            }
+        }
+        return closure.size();
+    }
+
+    private static AP<String> ap(int i) {
+        return new AP<>("p" + i);
+    }
+
+    private static LTL<String> eventually(LTL<String> ltl) {
+        return LTL.until(LTL.true_(), ltl);
+    }
+
+    private static LTL<String> always(LTL<String> ltl) {
+        return LTL.not(eventually(LTL.not(ltl)));
+    }
+}
@@ -0,0 +1,184 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.automata.Automaton;
+import il.ac.bgu.cs.fvm.automata.MultiColorAutomaton;
+import il.ac.bgu.cs.fvm.ltl.AP;
+import il.ac.bgu.cs.fvm.ltl.And;
+import il.ac.bgu.cs.fvm.ltl.LTL;
+import il.ac.bgu.cs.fvm.ltl.Next;
+import il.ac.bgu.cs.fvm.ltl.Not;
+import il.ac.bgu.cs.fvm.ltl.TRUE;
+import il.ac.bgu.cs.fvm.ltl.Until;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes LTL translations ({@link FvmFacadeImpl#LTL2NBA}, {@link FvmFacadeImpl#LTL2GNBA}) by
+ * formula structure, up to renaming of atomic propositions: {@code p U q} and {@code a U b}
+ * share an entry, {@code p U p} does not.
+ * <p>
+ * A formula is canonicalized by numbering its propositions in order of first occurrence; the
+ * canonical formula, over those numbers, is what gets translated and cached. Every lookup
+ * returns a fresh copy of the cached automaton with the numbers mapped back to the caller's
+ * propositions, so callers may modify it. The least recently used entries are evicted beyond
+ * {@code capacity}. Safe for concurrent use.
+ */
+public final class LtlTranslationCache {
+    static final int DEFAULT_CAPACITY = 256;
+
+    private final Map<String, Object> automata;
+    private long hits;
+    private long misses;
+
+    LtlTranslationCache(int capacity) {
+        this.automata = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return {@code translate(ltl)}, computed on a canonical formula once per structure.
+     */
+    @SuppressWarnings("unchecked")
+    <L> Automaton<?, L> nba(LTL<L> ltl, Function<LTL<Integer>, Automaton<?, Integer>> translate) {
+        List<L> propositions = new ArrayList<>();
+        StringBuilder key = new StringBuilder("NBA ");
+        LTL<Integer> canonical = canonicalize(ltl, propositions, key);
+        Automaton<Object, Integer> aut = (Automaton<Object, Integer>) lookup(key.toString(), () -> translate.apply(canonical));
+        Function<Set<Integer>, Set<L>> letter = relabeling(propositions);
+
+        Automaton<Object, L> result = new Automaton<>();
+        aut.getTransitions().forEach((from, outgoing) -> {
+            result.addState(from);
+            outgoing.forEach((label, targets) -> targets.forEach(to -> result.addTransition(from, letter.apply(label), to)));
+        });
+        aut.getInitialStates().forEach(result::setInitial);
+        aut.getAcceptingStates().forEach(result::setAccepting);
+        return result;
+    }
+
+    /**
+     * @return {@code translate(ltl)}, computed on a canonical formula once per structure.
+     */
+    @SuppressWarnings("unchecked")
+    <L> MultiColorAutomaton<Integer, L> gnba(LTL<L> ltl, Function<LTL<Integer>, MultiColorAutomaton<Integer, Integer>> translate) {
+        List<L> propositions = new ArrayList<>();
+        StringBuilder key = new StringBuilder("GNBA ");
+        LTL<Integer> canonical = canonicalize(ltl, propositions, key);
+        MultiColorAutomaton<Integer, Integer> aut = (MultiColorAutomaton<Integer, Integer>) lookup(key.toString(), () -> translate.apply(canonical));
+        Function<Set<Integer>, Set<L>> letter = relabeling(propositions);
+
+        MultiColorAutomaton<Integer, L> result = new MultiColorAutomaton<>();
+        aut.getTransitions().forEach((from, outgoing) -> {
+            result.addState(from);
+            outgoing.forEach((label, targets) -> targets.forEach(to -> result.addTransition(from, letter.apply(label), to)));
+        });
+        aut.getInitialStates().forEach(result::setInitial);
+        aut.getColors().forEach(color -> aut.getAcceptingStates(color).forEach(q -> result.setAccepting(q, color)));
+        return result;
+    }
+
+    /**
+     * @return the number of translations answered from the cache.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of translations that had to be computed.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of cached translations.
+     */
+    public synchronized int size() {
+        return automata.size();
+    }
+
+    public synchronized void clear() {
+        automata.clear();
+    }
+
+    private Object lookup(String key, Supplier<Object> translate) {
+        Object aut;
+        synchronized (this) {
+            aut = automata.get(key);
+            if (aut != null) {
+                hits++;
+                return aut;
+            }
+            misses++;
+        }
+        // Translated outside the lock; concurrent misses on the same key build equal automata.
+        aut = translate.get();
+        synchronized (this) {
+            automata.put(key, aut);
+        }
+        return aut;
+    }
+
+    /**
+     * Rebuilds {@code ltl} with proposition {@code propositions.get(i)} replaced by {@code i},
+     * appending newly seen propositions to {@code propositions} and a prefix encoding of the
+     * result to {@code key}.
+     */
+    private static <L> LTL<Integer> canonicalize(LTL<L> ltl, List<L> propositions, StringBuilder key) {
+        if (ltl instanceof TRUE) {
+            key.append('T');
+            return LTL.true_();
+        }
+        if (ltl instanceof AP) {
+            L name = ((AP<L>) ltl).getName();
+            int index = propositions.indexOf(name);
+            if (index < 0) {
+                index = propositions.size();
+                propositions.add(name);
+            }
+            key.append('#').append(index).append(' ');
+            return new AP<>(index);
+        }
+        if (ltl instanceof Not) {
+            key.append('!');
+            return LTL.not(canonicalize(((Not<L>) ltl).getInner(), propositions, key));
+        }
+        if (ltl instanceof Next) {
+            key.append('X');
+            return LTL.next(canonicalize(((Next<L>) ltl).getInner(), propositions, key));
+        }
+        if (ltl instanceof And) {
+            key.append('&');
+            LTL<Integer> left = canonicalize(((And<L>) ltl).getLeft(), propositions, key);
+            return LTL.and(left, canonicalize(((And<L>) ltl).getRight(), propositions, key));
+        }
+        if (ltl instanceof Until) {
+            key.append('U');
+            LTL<Integer> left = canonicalize(((Until<L>) ltl).getLeft(), propositions, key);
+            return LTL.until(left, canonicalize(((Until<L>) ltl).getRight(), propositions, key));
+        }
+        throw new IllegalArgumentException("Unsupported LTL formula: " + ltl);
+    }
+
+    private static <L> Function<Set<Integer>, Set<L>> relabeling(List<L> propositions) {
+        Map<Set<Integer>, Set<L>> letters = new HashMap<>();
+        return label -> letters.computeIfAbsent(label, l -> {
+            Set<L> result = new HashSet<>();
+            l.forEach(i -> result.add(propositions.get(i)));
+            return result;
+        });
+    }
+}
@@ -0,0 +1,109 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A scratch file, memory-mapped in 64 MiB segments that are added as positions beyond the end
+ * are touched. The operating system pages it in and out, so its size is bounded by the disk,
+ * not the heap. {@code int}s and {@code long}s must be aligned to their size; byte arrays may
+ * cross segments. The file is deleted on {@link #close()}; where the platform refuses to delete a
+ * file that is still mapped (mappings are only released by garbage collection), it is deleted
+ * on exit instead.
+ */
+class MappedBuffer implements Closeable {
+    private static final int SEGMENT_BITS = 26;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    MappedBuffer(Path file) {
+        this.file = file;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int getInt(long pos) {
+        return segment(pos).getInt((int) (pos & SEGMENT_MASK));
+    }
+
+    void putInt(long pos, int value) {
+        segment(pos).putInt((int) (pos & SEGMENT_MASK), value);
+    }
+
+    long getLong(long pos) {
+        return segment(pos).getLong((int) (pos & SEGMENT_MASK));
+    }
+
+    void putLong(long pos, long value) {
+        segment(pos).putLong((int) (pos & SEGMENT_MASK), value);
+    }
+
+    void get(long pos, byte[] dst) {
+        int done = 0;
+        while (done < dst.length) {
+            MappedByteBuffer segment = segment(pos + done);
+            int offset = (int) ((pos + done) & SEGMENT_MASK);
+            int n = Math.min(dst.length - done, SEGMENT_SIZE - offset);
+            for (int i = 0; i < n; i++) {
+                dst[done + i] = segment.get(offset + i);
+            }
+            done += n;
+        }
+    }
+
+    void put(long pos, byte[] src) {
+        int done = 0;
+        while (done < src.length) {
+            MappedByteBuffer segment = segment(pos + done);
+            int offset = (int) ((pos + done) & SEGMENT_MASK);
+            int n = Math.min(src.length - done, SEGMENT_SIZE - offset);
+            for (int i = 0; i < n; i++) {
+                segment.put(offset + i, src[done + i]);
+            }
+            done += n;
+        }
+    }
+
+    @Override
+    public void close() {
+        segments.clear();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    private MappedByteBuffer segment(long pos) {
+        int index = (int) (pos >>> SEGMENT_BITS);
+        try {
+            while (segments.size() <= index) {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() << SEGMENT_BITS, SEGMENT_SIZE));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return segments.get(index);
+    }
+}
@@ -0,0 +1,207 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An {@link Interner} whose values live in memory-mapped files instead of the heap.
+ * <p>
+ * Encoded states are appended to a data file, with their offsets in a second file indexed by
+ * id. Duplicates are found through an open-addressing hash index, also on disk, of (64-bit
+ * fingerprint, id) slots; a fingerprint match is confirmed by decoding and comparing the stored
+ * state. Two small LRU caches keep recently used states and ids on the heap.
+ * <p>
+ * The index grows inside its one file: the doubled table is built just past the current one,
+ * then moved to the front of the file. The file is therefore at most 1.5 times the table, and
+ * no file is dropped while it is still mapped.
+ */
+class MappedStateStore<S> implements Closeable {
+    static final int DEFAULT_CACHE_SIZE = 1 << 16;
+
+    private static final int SLOT_BYTES = 16;
+
+    private final StateCodec<S> codec;
+    private final MappedBuffer data;
+    private final MappedBuffer offsets;
+    private final MappedBuffer index;
+    private long slots = 1 << 16;
+    // Bytes of the index file that may hold non-zero slots.
+    private long indexEnd = slots * SLOT_BYTES;
+    private long dataEnd = 0;
+    private int size = 0;
+
+    private final Map<S, Integer> idCache;
+    private final Map<Integer, S> stateCache;
+
+    MappedStateStore(Path directory, StateCodec<S> codec) {
+        this(directory, codec, DEFAULT_CACHE_SIZE);
+    }
+
+    MappedStateStore(Path directory, StateCodec<S> codec, int cacheSize) {
+        this.codec = codec;
+        this.data = new MappedBuffer(directory.resolve("states.dat"));
+        this.offsets = new MappedBuffer(directory.resolve("states.off"));
+        this.index = new MappedBuffer(directory.resolve("states.idx"));
+        this.idCache = lru(cacheSize);
+        this.stateCache = lru(cacheSize);
+    }
+
+    /**
+     * @return the id of {@code state}, storing it under the next free id if it is new.
+     */
+    int intern(S state) {
+        Integer cached = idCache.get(state);
+        if (cached != null) {
+            return cached;
+        }
+        long fingerprint = BitstateVisitedSet.fingerprint(state);
+        long slot = find(state, fingerprint);
+        int id = (int) index.getLong(slot * SLOT_BYTES + 8) - 1;
+        if (id < 0) {
+            id = append(state);
+            index.putLong(slot * SLOT_BYTES, fingerprint);
+            index.putLong(slot * SLOT_BYTES + 8, id + 1);
+            if (2L * size > slots) {
+                rehash();
+            }
+        }
+        idCache.put(state, id);
+        return id;
+    }
+
+    /**
+     * @return the id of {@code state}, or -1 if it was never stored.
+     */
+    @SuppressWarnings("unchecked")
+    int id(Object state) {
+        Integer cached = idCache.get(state);
+        if (cached != null) {
+            return cached;
+        }
+        int id = (int) index.getLong(find(state, BitstateVisitedSet.fingerprint(state)) * SLOT_BYTES + 8) - 1;
+        if (id >= 0) {
+            idCache.put((S) state, id);
+        }
+        return id;
+    }
+
+    S get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No state with id " + id);
+        }
+        S state = stateCache.get(id);
+        if (state == null) {
+            state = decode(id);
+            stateCache.put(id, state);
+        }
+        return state;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        data.close();
+        offsets.close();
+        index.close();
+        idCache.clear();
+        stateCache.clear();
+    }
+
+    /**
+     * Linear probing from the fingerprint's home slot.
+     *
+     * @return the slot holding {@code state}, or the empty slot where it would go.
+     */
+    private long find(Object state, long fingerprint) {
+        long slot = Long.remainderUnsigned(fingerprint, slots);
+        while (true) {
+            long id = index.getLong(slot * SLOT_BYTES + 8);
+            if (id == 0) {
+                return slot;
+            }
+            if (index.getLong(slot * SLOT_BYTES) == fingerprint && get((int) id - 1).equals(state)) {
+                return slot;
+            }
+            slot = slot + 1 == slots ? 0 : slot + 1;
+        }
+    }
+
+    private int append(S state) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            codec.write(state, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int id = size++;
+        offsets.putLong(8L * id, dataEnd);
+        data.putInt(dataEnd, bytes.size());
+        data.put(dataEnd + 4, bytes.toByteArray());
+        // Keep record headers int-aligned.
+        dataEnd += (4 + bytes.size() + 3) & ~3;
+        return id;
+    }
+
+    private S decode(int id) {
+        long offset = offsets.getLong(8L * id);
+        byte[] bytes = new byte[data.getInt(offset)];
+        data.get(offset + 4, bytes);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return codec.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Doubles the index. Stored fingerprints are reused, so no state is decoded.
+     */
+    private void rehash() {
+        long oldSlots = slots;
+        long newSlots = 2 * slots;
+        // The new table is built right after the current one, then moved over it.
+        long base = oldSlots * SLOT_BYTES;
+        long newEnd = base + newSlots * SLOT_BYTES;
+        for (long pos = base; pos < Math.min(indexEnd, newEnd); pos += 8) {
+            index.putLong(pos, 0);
+        }
+        indexEnd = Math.max(indexEnd, newEnd);
+        for (long s = 0; s < oldSlots; s++) {
+            long id = index.getLong(s * SLOT_BYTES + 8);
+            if (id != 0) {
+                long fingerprint = index.getLong(s * SLOT_BYTES);
+                long slot = Long.remainderUnsigned(fingerprint, newSlots);
+                while (index.getLong(base + slot * SLOT_BYTES + 8) != 0) {
+                    slot = slot + 1 == newSlots ? 0 : slot + 1;
+                }
+                index.putLong(base + slot * SLOT_BYTES, fingerprint);
+                index.putLong(base + slot * SLOT_BYTES + 8, id);
+            }
+        }
+        // Forward copy to a lower offset, so overlapping source bytes are read before overwritten.
+        for (long pos = 0; pos < newSlots * SLOT_BYTES; pos += 8) {
+            index.putLong(pos, index.getLong(base + pos));
+        }
+        slots = newSlots;
+    }
+
+    private static <K, V> Map<K, V> lru(int capacity) {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+}
@@ -0,0 +1,626 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.exceptions.*;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A transition system kept in memory-mapped files, for state spaces that do not fit on the heap.
+ * <p>
+ * States are stored by a {@link MappedStateStore}. Per state id, a fixed-size record in a table
+ * file holds the offset of its label and the heads of its outgoing and incoming edge lists;
+ * edges are fixed-size records on disk, each linked into both lists. Labels are appended as
+ * lists of proposition ids, so changing a label writes a new one. Only actions, atomic
+ * propositions and two bits per state (member, initial) stay on the heap.
+ * <p>
+ * The files are created in {@code directory}, which must not hold another open instance, and
+ * are deleted on {@link #close()}.
+ */
+public class MappedTransitionSystem<S, A, P> implements IndexedTransitionSystem<S, A, P>, Closeable {
+    // State record: label offset, out-list head, in-list head, out-degree, in-degree.
+    private static final int STATE_BYTES = 32;
+    // Edge record: action, from, to, unused, next outgoing edge of from, next incoming edge of to.
+    private static final int EDGE_BYTES = 32;
+
+    private String name = "";
+    private final MappedStateStore<S> stateIds;
+    private final Interner<A> actionIds = new Interner<>();
+    private final Interner<P> propositionIds = new Interner<>();
+    private final BitSet states = new BitSet();
+    private final BitSet iStates = new BitSet();
+    private final BitSet actions = new BitSet();
+    private final BitSet atomicPropositions = new BitSet();
+
+    private final MappedBuffer table;
+    private final MappedBuffer labels;
+    private final MappedBuffer edges;
+    // Offset 0 stands for "no label" and "end of list".
+    private long labelsEnd = 8;
+    private long edgesEnd = EDGE_BYTES;
+    private long transitionCount = 0;
+
+    public MappedTransitionSystem(Path directory) {
+        this(directory, StateCodec.values());
+    }
+
+    public MappedTransitionSystem(Path directory, StateCodec<S> codec) {
+        this.stateIds = new MappedStateStore<>(directory, codec);
+        this.table = new MappedBuffer(directory.resolve("table.dat"));
+        this.labels = new MappedBuffer(directory.resolve("labels.dat"));
+        this.edges = new MappedBuffer(directory.resolve("edges.dat"));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void addAction(A a) {
+        actions.set(actionIds.intern(a));
+    }
+
+    @Override
+    public void addInitialState(S s) throws FVMException {
+        int id = stateId(s);
+        if (id < 0) {
+            throw new InvalidInitialStateException(s);
+        }
+        iStates.set(id);
+    }
+
+    @Override
+    public void addState(S s) {
+        int id = stateIds.intern(s);
+        // Adding a present state is a no-op; only a new (or removed, hence unlabelled) one is reset.
+        if (!states.get(id)) {
+            states.set(id);
+            table.putLong((long) id * STATE_BYTES, 0);
+        }
+    }
+
+    @Override
+    public void addTransition(Transition<S, A> t) throws FVMException {
+        int from = stateId(t.getFrom());
+        int action = actionId(t.getAction());
+        int to = stateId(t.getTo());
+        if (from < 0 || action < 0 || to < 0) {
+            throw new InvalidTransitionException(t);
+        }
+        if (findEdge(from, action, to) != 0) {
+            return;
+        }
+        long edge = edgesEnd;
+        edgesEnd += EDGE_BYTES;
+        edges.putInt(edge, action);
+        edges.putInt(edge + 4, from);
+        edges.putInt(edge + 8, to);
+        edges.putLong(edge + 16, outHead(from));
+        edges.putLong(edge + 24, inHead(to));
+        table.putLong((long) from * STATE_BYTES + 8, edge);
+        table.putLong((long) to * STATE_BYTES + 16, edge);
+        addDegree(from, 24, 1);
+        addDegree(to, 28, 1);
+        transitionCount++;
+    }
+
+    @Override
+    public Set<A> getActions() {
+        return new IdSet<>(actionIds, actions);
+    }
+
+    @Override
+    public void addAtomicProposition(P p) {
+        atomicPropositions.set(propositionIds.intern(p));
+    }
+
+    @Override
+    public Set<P> getAtomicPropositions() {
+        return new IdSet<>(propositionIds, atomicPropositions);
+    }
+
+    @Override
+    public void addToLabel(S s, P l) throws FVMException {
+        int id = stateId(s);
+        int p = propositionId(l);
+        if (id < 0 || p < 0) {
+            throw new InvalidLablingPairException(s, l);
+        }
+        int[] label = labelIds(id);
+        if (Arrays.stream(label).noneMatch(q -> q == p)) {
+            int[] extended = Arrays.copyOf(label, label.length + 1);
+            extended[label.length] = p;
+            writeLabel(id, extended);
+        }
+    }
+
+    @Override
+    public Set<P> getLabel(S s) {
+        int id = stateId(s);
+        if (id < 0) {
+            throw new StateNotFoundException(s);
+        }
+        return label(id);
+    }
+
+    @Override
+    public Set<S> getInitialStates() {
+        return new StoredSet(iStates);
+    }
+
+    @Override
+    public Map<S, Set<P>> getLabelingFunction() {
+        return new AbstractMap<S, Set<P>>() {
+            @Override
+            public Set<P> get(Object key) {
+                int id = stateId(key);
+                return id < 0 ? null : label(id);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return stateId(key) >= 0;
+            }
+
+            @Override
+            public Set<Entry<S, Set<P>>> entrySet() {
+                return new AbstractSet<Entry<S, Set<P>>>() {
+                    @Override
+                    public Iterator<Entry<S, Set<P>>> iterator() {
+                        return new Iterator<Entry<S, Set<P>>>() {
+                            private int next = states.nextSetBit(0);
+
+                            @Override
+                            public boolean hasNext() {
+                                return next >= 0;
+                            }
+
+                            @Override
+                            public Entry<S, Set<P>> next() {
+                                if (next < 0) {
+                                    throw new NoSuchElementException();
+                                }
+                                Entry<S, Set<P>> entry = new SimpleImmutableEntry<>(stateIds.get(next), label(next));
+                                next = states.nextSetBit(next + 1);
+                                return entry;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return states.cardinality();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Set<S> getStates() {
+        return new StoredSet(states);
+    }
+
+    @Override
+    public Set<Transition<S, A>> getTransitions() {
+        return new AbstractSet<Transition<S, A>>() {
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Transition)) {
+                    return false;
+                }
+                Transition<?, ?> t = (Transition<?, ?>) o;
+                int from = stateId(t.getFrom());
+                int action = actionId(t.getAction());
+                int to = stateId(t.getTo());
+                return from >= 0 && action >= 0 && to >= 0 && findEdge(from, action, to) != 0;
+            }
+
+            @Override
+            public int size() {
+                return (int) Math.min(transitionCount, Integer.MAX_VALUE);
+            }
+
+            @Override
+            public Iterator<Transition<S, A>> iterator() {
+                return new Iterator<Transition<S, A>>() {
+                    private int from = states.nextSetBit(0);
+                    private long edge = from < 0 ? 0 : outHead(from);
+
+                    @Override
+                    public boolean hasNext() {
+                        while (from >= 0 && edge == 0) {
+                            from = states.nextSetBit(from + 1);
+                            edge = from < 0 ? 0 : outHead(from);
+                        }
+                        return from >= 0;
+                    }
+
+                    @Override
+                    public Transition<S, A> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Transition<S, A> t = new Transition<>(stateIds.get(from), actionIds.value(edges.getInt(edge)),
+                                stateIds.get(edges.getInt(edge + 8)));
+                        edge = edges.getLong(edge + 16);
+                        return t;
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public void removeAction(A a) throws FVMException {
+        int id = actionId(a);
+        if (id < 0) {
+            return;
+        }
+        for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+            for (long e = outHead(s); e != 0; e = edges.getLong(e + 16)) {
+                if (edges.getInt(e) == id) {
+                    throw new DeletionOfAttachedActionException(a, TransitionSystemPart.TRANSITIONS);
+                }
+            }
+        }
+        actions.clear(id);
+    }
+
+    @Override
+    public void removeAtomicProposition(P p) throws FVMException {
+        int id = propositionId(p);
+        if (id < 0) {
+            return;
+        }
+        for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+            if (Arrays.stream(labelIds(s)).anyMatch(q -> q == id)) {
+                throw new DeletionOfAttachedAtomicPropositionException(p, TransitionSystemPart.LABELING_FUNCTION);
+            }
+        }
+        atomicPropositions.clear(id);
+    }
+
+    @Override
+    public void removeInitialState(S s) {
+        int id = stateIds.id(s);
+        if (id >= 0) {
+            iStates.clear(id);
+        }
+    }
+
+    @Override
+    public void removeLabel(S s, P l) {
+        int id = stateId(s);
+        int p = propositionIds.id(l);
+        if (id >= 0 && p >= 0) {
+            int[] label = labelIds(id);
+            if (Arrays.stream(label).anyMatch(q -> q == p)) {
+                writeLabel(id, Arrays.stream(label).filter(q -> q != p).toArray());
+            }
+        }
+    }
+
+    @Override
+    public void removeState(S s) throws FVMException {
+        int id = stateId(s);
+        if (id < 0) {
+            return;
+        }
+        if (iStates.get(id)) {
+            throw new DeletionOfAttachedStateException(s, TransitionSystemPart.INITIAL_STATES);
+        }
+        if (outHead(id) != 0 || inHead(id) != 0) {
+            throw new DeletionOfAttachedStateException(s, TransitionSystemPart.TRANSITIONS);
+        }
+        if (labelIds(id).length > 0) {
+            throw new DeletionOfAttachedStateException(s, TransitionSystemPart.LABELING_FUNCTION);
+        }
+        states.clear(id);
+    }
+
+    @Override
+    public void removeTransition(Transition<S, A> t) {
+        int from = stateId(t.getFrom());
+        int action = actionId(t.getAction());
+        int to = stateId(t.getTo());
+        if (from < 0 || action < 0 || to < 0) {
+            return;
+        }
+        long edge = findEdge(from, action, to);
+        if (edge != 0) {
+            unlink((long) from * STATE_BYTES + 8, edge, 16);
+            unlink((long) to * STATE_BYTES + 16, edge, 24);
+            addDegree(from, 24, -1);
+            addDegree(to, 28, -1);
+            transitionCount--;
+        }
+    }
+
+    /**
+     * Releases the mapped files and deletes them. The system must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        stateIds.close();
+        table.close();
+        labels.close();
+        edges.close();
+    }
+
+    @Override
+    public int stateId(Object s) {
+        int id = stateIds.id(s);
+        return id >= 0 && states.get(id) ? id : -1;
+    }
+
+    @Override
+    public S state(int id) {
+        return stateIds.get(id);
+    }
+
+    /**
+     * @return an exclusive upper bound on state ids. Ids are assigned in {@link #addState} order.
+     */
+    int stateIdBound() {
+        return stateIds.size();
+    }
+
+    @Override
+    public int[] initialStateIds() {
+        return iStates.stream().toArray();
+    }
+
+    @Override
+    public int[] successorIds(int id) {
+        int[] result = new int[table.getInt((long) id * STATE_BYTES + 24)];
+        int i = 0;
+        for (long e = outHead(id); e != 0; e = edges.getLong(e + 16)) {
+            result[i++] = edges.getInt(e + 8);
+        }
+        return result;
+    }
+
+    @Override
+    public Set<P> label(int id) {
+        Set<P> result = new HashSet<>();
+        for (int p : labelIds(id)) {
+            result.add(propositionIds.value(p));
+        }
+        return result;
+    }
+
+    /**
+     * Successors of {@code s}, in time proportional to its out-degree.
+     */
+    @Override
+    public Set<S> post(S s) {
+        return adjacent(s, -1, true);
+    }
+
+    @Override
+    public Set<S> post(S s, A a) {
+        int action = actionId(a);
+        return action < 0 ? new HashSet<>() : adjacent(s, action, true);
+    }
+
+    /**
+     * Predecessors of {@code s}, in time proportional to its in-degree.
+     */
+    @Override
+    public Set<S> pre(S s) {
+        return adjacent(s, -1, false);
+    }
+
+    @Override
+    public Set<S> pre(S s, A a) {
+        int action = actionId(a);
+        return action < 0 ? new HashSet<>() : adjacent(s, action, false);
+    }
+
+    @Override
+    public Map<A, Set<S>> postByAction(S s) {
+        Map<A, Set<S>> result = new HashMap<>();
+        int id = stateId(s);
+        if (id >= 0) {
+            for (long e = outHead(id); e != 0; e = edges.getLong(e + 16)) {
+                result.computeIfAbsent(actionIds.value(edges.getInt(e)), a -> new HashSet<>()).add(stateIds.get(edges.getInt(e + 8)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean hasUniqueSuccessorPerAction() {
+        for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+            int[] outActions = new int[table.getInt((long) s * STATE_BYTES + 24)];
+            int i = 0;
+            for (long e = outHead(s); e != 0; e = edges.getLong(e + 16)) {
+                outActions[i++] = edges.getInt(e);
+            }
+            Arrays.sort(outActions);
+            for (i = 1; i < outActions.length; i++) {
+                if (outActions[i] == outActions[i - 1]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Breadth-first search over ids. The result is a view over a bit set of the visited ids,
+     * so it takes no heap per state beyond the search queue.
+     */
+    @Override
+    public Set<S> reach() {
+        BitSet visited = new BitSet(stateIdBound());
+        IntList queue = new IntList();
+        for (int s = iStates.nextSetBit(0); s >= 0; s = iStates.nextSetBit(s + 1)) {
+            visited.set(s);
+            queue.add(s);
+        }
+        for (int head = 0; head < queue.size(); head++) {
+            for (long e = outHead(queue.get(head)); e != 0; e = edges.getLong(e + 16)) {
+                int next = edges.getInt(e + 8);
+                if (!visited.get(next)) {
+                    visited.set(next);
+                    queue.add(next);
+                }
+            }
+        }
+        return new StoredSet(visited);
+    }
+
+    private Set<S> adjacent(S s, int action, boolean outgoing) {
+        Set<S> result = new HashSet<>();
+        int id = stateId(s);
+        if (id >= 0) {
+            for (long e = outgoing ? outHead(id) : inHead(id); e != 0; e = edges.getLong(e + (outgoing ? 16 : 24))) {
+                if (action < 0 || edges.getInt(e) == action) {
+                    result.add(stateIds.get(edges.getInt(e + (outgoing ? 8 : 4))));
+                }
+            }
+        }
+        return result;
+    }
+
+    private long outHead(int id) {
+        return table.getLong((long) id * STATE_BYTES + 8);
+    }
+
+    private long inHead(int id) {
+        return table.getLong((long) id * STATE_BYTES + 16);
+    }
+
+    private void addDegree(int id, int field, int delta) {
+        long pos = (long) id * STATE_BYTES + field;
+        table.putInt(pos, table.getInt(pos) + delta);
+    }
+
+    /**
+     * @return the offset of edge {@code (from, action, to)}, or 0 if there is none.
+     */
+    private long findEdge(int from, int action, int to) {
+        for (long e = outHead(from); e != 0; e = edges.getLong(e + 16)) {
+            if (edges.getInt(e) == action && edges.getInt(e + 8) == to) {
+                return e;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Removes {@code edge} from the list starting at table position {@code head}, whose links
+     * are at offset {@code next} within edge records.
+     */
+    private void unlink(long head, long edge, int next) {
+        long e = table.getLong(head);
+        if (e == edge) {
+            table.putLong(head, edges.getLong(edge + next));
+            return;
+        }
+        while (edges.getLong(e + next) != edge) {
+            e = edges.getLong(e + next);
+        }
+        edges.putLong(e + next, edges.getLong(edge + next));
+    }
+
+    private int[] labelIds(int id) {
+        long offset = table.getLong((long) id * STATE_BYTES);
+        if (offset == 0) {
+            return new int[0];
+        }
+        int[] result = new int[labels.getInt(offset)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = labels.getInt(offset + 4 + 4L * i);
+        }
+        return result;
+    }
+
+    private void writeLabel(int id, int[] label) {
+        long offset = labelsEnd;
+        labels.putInt(offset, label.length);
+        for (int i = 0; i < label.length; i++) {
+            labels.putInt(offset + 4 + 4L * i, label[i]);
+        }
+        labelsEnd += 4 + 4L * label.length;
+        table.putLong((long) id * STATE_BYTES, offset);
+    }
+
+    private int actionId(Object a) {
+        int id = actionIds.id(a);
+        return id >= 0 && actions.get(id) ? id : -1;
+    }
+
+    private int propositionId(Object p) {
+        int id = propositionIds.id(p);
+        return id >= 0 && atomicPropositions.get(id) ? id : -1;
+    }
+
+    /**
+     * Read-only view of the stored states whose ids are set in {@code members}.
+     */
+    private final class StoredSet extends AbstractSet<S> {
+        private final BitSet members;
+
+        StoredSet(BitSet members) {
+            this.members = members;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            int id = stateIds.id(o);
+            return id >= 0 && members.get(id);
+        }
+
+        @Override
+        public int size() {
+            return members.cardinality();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return members.isEmpty();
+        }
+
+        @Override
+        public Iterator<S> iterator() {
+            return new Iterator<S>() {
+                private int next = members.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public S next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    S value = stateIds.get(next);
+                    next = members.nextSetBit(next + 1);
+                    return value;
+                }
+            };
+        }
+    }
+}
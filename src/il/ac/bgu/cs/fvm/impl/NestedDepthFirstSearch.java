@@ -0,0 +1,131 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * On-the-fly emptiness check for Buchi acceptance (Courcoubetis et al., with Holzmann's
+ * early cycle detection). The outer search starts an inner search from every accepting
+ * node in post-order; the inner search reports a cycle as soon as it hits a node on the
+ * outer stack. Both searches are iterative, and each node is expanded at most twice.
+ */
+class NestedDepthFirstSearch<N> {
+    private final ImplicitGraph<N> graph;
+    private final Predicate<N> accepting;
+
+    private final VisitedSet<N> outerVisited;
+    private final VisitedSet<N> innerVisited;
+    private final Set<N> onOuterStack = new HashSet<>();
+    private final Deque<Frame<N>> outerStack = new ArrayDeque<>();
+
+    NestedDepthFirstSearch(ImplicitGraph<N> graph, Predicate<N> accepting) {
+        this(graph, accepting, VisitedSet.exact(), VisitedSet.exact());
+    }
+
+    /**
+     * Searches with the given visited sets, e.g. {@link BitstateVisitedSet}s. Only the search
+     * stack is stored exactly.
+     */
+    NestedDepthFirstSearch(ImplicitGraph<N> graph, Predicate<N> accepting, VisitedSet<N> outerVisited, VisitedSet<N> innerVisited) {
+        this.graph = graph;
+        this.accepting = accepting;
+        this.outerVisited = outerVisited;
+        this.innerVisited = innerVisited;
+    }
+
+    /**
+     * @return a reachable cycle through an accepting node, or {@code null} if there is none.
+     */
+    Lasso<N> findAcceptingCycle() {
+        for (N initial : graph.initialNodes()) {
+            if (outerVisited.add(initial)) {
+                Lasso<N> lasso = outerSearch(initial);
+                if (lasso != null) {
+                    return lasso;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Lasso<N> outerSearch(N root) {
+        pushOuter(root);
+        while (!outerStack.isEmpty()) {
+            Frame<N> top = outerStack.peek();
+            if (top.successors.hasNext()) {
+                N next = top.successors.next();
+                if (outerVisited.add(next)) {
+                    pushOuter(next);
+                }
+            } else {
+                if (accepting.test(top.node)) {
+                    Lasso<N> lasso = innerSearch(top.node);
+                    if (lasso != null) {
+                        return lasso;
+                    }
+                }
+                outerStack.pop();
+                onOuterStack.remove(top.node);
+            }
+        }
+        return null;
+    }
+
+    private Lasso<N> innerSearch(N seed) {
+        Deque<Frame<N>> stack = new ArrayDeque<>();
+        stack.push(new Frame<>(seed, graph.successors(seed).iterator()));
+        while (!stack.isEmpty()) {
+            Frame<N> top = stack.peek();
+            if (top.successors.hasNext()) {
+                N next = top.successors.next();
+                if (onOuterStack.contains(next)) {
+                    return lasso(stack, next);
+                }
+                if (innerVisited.add(next)) {
+                    stack.push(new Frame<>(next, graph.successors(next).iterator()));
+                }
+            } else {
+                stack.pop();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds the lasso once the inner search (currently on {@code innerStack}) reached
+     * {@code target}, a node of the outer stack whose top is the seed.
+     */
+    private Lasso<N> lasso(Deque<Frame<N>> innerStack, N target) {
+        List<N> prefix = new ArrayList<>();
+        outerStack.descendingIterator().forEachRemaining(f -> prefix.add(f.node));
+
+        List<N> cycle = new ArrayList<>();
+        Iterator<Frame<N>> inner = innerStack.descendingIterator();
+        inner.next(); // the seed itself
+        inner.forEachRemaining(f -> cycle.add(f.node));
+        cycle.addAll(prefix.subList(prefix.indexOf(target), prefix.size()));
+
+        return new Lasso<>(prefix, cycle);
+    }
+
+    private void pushOuter(N node) {
+        outerStack.push(new Frame<>(node, graph.successors(node).iterator()));
+        onOuterStack.add(node);
+    }
+
+    private static final class Frame<N> {
+        final N node;
+        final Iterator<N> successors;
+
+        Frame(N node, Iterator<N> successors) {
+            this.node = node;
+            this.successors = successors;
+        }
+    }
+}
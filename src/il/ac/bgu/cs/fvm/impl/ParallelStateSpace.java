@@ -0,0 +1,129 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.exceptions.FVMException;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Explores a state space on a work-stealing {@link ForkJoinPool}. Each newly discovered
+ * state becomes a task; the visited set is concurrent, and every worker appends the
+ * transitions it generates to its own buffer, so workers never contend on the result.
+ * The successor function must be safe to call from several threads at once.
+ */
+class ParallelStateSpace<S, A> {
+    private final Set<S> states = ConcurrentHashMap.newKeySet();
+    private final Queue<List<Transition<S, A>>> buffers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<List<Transition<S, A>>> buffer = ThreadLocal.withInitial(() -> {
+        List<Transition<S, A>> own = new ArrayList<>();
+        buffers.add(own);
+        return own;
+    });
+    // Tasks forked but not yet finished; the exploration is over when it drops to zero.
+    private final AtomicInteger pending = new AtomicInteger();
+    private final CountDownLatch done = new CountDownLatch(1);
+    // The first throwable raised by a worker, rethrown by explore(). Errors are included, so an
+    // OutOfMemoryError in a worker cannot leave a silently partial state space.
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Function<S, ? extends Collection<Transition<S, A>>> successors;
+
+    private ParallelStateSpace(Function<S, ? extends Collection<Transition<S, A>>> successors) {
+        this.successors = successors;
+    }
+
+    /**
+     * @param successors  outgoing transitions of a state
+     * @param parallelism number of worker threads
+     */
+    static <S, A> ParallelStateSpace<S, A> explore(Collection<S> initialStates,
+                                                   Function<S, ? extends Collection<Transition<S, A>>> successors,
+                                                   int parallelism) {
+        ParallelStateSpace<S, A> space = new ParallelStateSpace<>(successors);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // Hold one count until all roots are submitted, so early finishers cannot end the search.
+            space.pending.incrementAndGet();
+            for (S s : initialStates) {
+                if (space.states.add(s)) {
+                    space.pending.incrementAndGet();
+                    pool.execute(space.new Expand(s));
+                }
+            }
+            space.finished();
+            space.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FVMException("State-space exploration interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+        Throwable failure = space.failure.get();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            // A checked exception thrown sneakily by the successor function.
+            throw new RuntimeException(failure);
+        }
+        return space;
+    }
+
+    Set<S> getStates() {
+        return states;
+    }
+
+    List<Transition<S, A>> getTransitions() {
+        List<Transition<S, A>> all = new ArrayList<>();
+        buffers.forEach(all::addAll);
+        return all;
+    }
+
+    private void finished() {
+        if (pending.decrementAndGet() == 0) {
+            done.countDown();
+        }
+    }
+
+    private class Expand extends RecursiveAction {
+        private final S state;
+
+        Expand(S state) {
+            this.state = state;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (failure.get() == null) {
+                    Collection<Transition<S, A>> generated = successors.apply(state);
+                    buffer.get().addAll(generated);
+                    for (Transition<S, A> t : generated) {
+                        if (states.add(t.getTo())) {
+                            pending.incrementAndGet();
+                            new Expand(t.getTo()).fork();
+                        }
+                    }
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                finished();
+            }
+        }
+    }
+}
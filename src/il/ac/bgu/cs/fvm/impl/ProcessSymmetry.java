@@ -0,0 +1,198 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Canonicalizers for symmetry reduction of systems made of copies of one process template.
+ * A canonicalizer maps a state to a representative of its orbit under permutations of the
+ * process indices; the symmetric overloads of {@link FvmFacadeImpl#transitionSystemFromProgramGraph}
+ * and {@link FvmFacadeImpl#transitionSystemFromChannelSystem} store only representatives.
+ * <p>
+ * The reduction is sound when the permutations are automorphisms of the system (every permuted
+ * step is a step) and the checked property does not distinguish processes. Choosing the same
+ * representative for the whole orbit is not required for soundness, only for maximal reduction.
+ */
+public final class ProcessSymmetry {
+
+    /**
+     * Most orderings of tied processes {@link #sortedProcesses} tries per state.
+     */
+    public static final int MAX_TIE_PERMUTATIONS = 5040;
+
+    private ProcessSymmetry() {
+    }
+
+    /**
+     * For identical processes whose only per-process data is their location: sorts the location
+     * vector. Variables must be shared and not refer to process indices.
+     */
+    public static <L, V> UnaryOperator<Pair<List<L>, V>> sortedLocations(Comparator<? super L> order) {
+        return state -> {
+            List<L> locations = new ArrayList<>(state.getFirst());
+            locations.sort(order);
+            return locations.equals(state.getFirst()) ? state : Pair.pair(locations, state.getSecond());
+        };
+    }
+
+    /**
+     * Canonicalizes by sorting the processes by their local state, such as their location and
+     * local variables, and renumbering them in that order. Processes with equal local states
+     * may still be told apart by shared data, for instance a variable holding a process index;
+     * among the permutations that only reorder such ties, the least state by {@code order} is
+     * taken. Without ties this costs one sort and one {@code permute} per state, instead of
+     * {@code processes!} permutations.
+     * <p>
+     * If the ties allow more than {@link #MAX_TIE_PERMUTATIONS} orderings, tied processes keep
+     * their relative order. That is still sound, but an orbit may then keep a few
+     * representatives.
+     *
+     * @param localState the local state of process {@code i}; a permuted state must give
+     *                   process {@code permutation[i]} the local state process {@code i} had
+     * @param localOrder a total order on local states
+     * @param permute    applies a permutation to a state, as in {@link #minimumOverPermutations}
+     * @param order      a total order on states consistent with {@code equals}
+     */
+    public static <S, K> UnaryOperator<S> sortedProcesses(int processes, BiFunction<S, Integer, K> localState, Comparator<? super K> localOrder,
+                                                          BiFunction<S, int[], S> permute, Comparator<? super S> order) {
+        List<List<int[]>> groupPermutations = new ArrayList<>();
+        return state -> {
+            List<K> locals = new ArrayList<>(processes);
+            Integer[] sorted = new Integer[processes];
+            for (int i = 0; i < processes; i++) {
+                locals.add(localState.apply(state, i));
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, (i, j) -> localOrder.compare(locals.get(i), locals.get(j)));
+
+            // Runs of processes with equal local states, as [start, end) positions in sorted.
+            List<int[]> ties = new ArrayList<>();
+            long orderings = 1;
+            for (int start = 0, end; start < processes; start = end) {
+                end = start + 1;
+                while (end < processes && localOrder.compare(locals.get(sorted[start]), locals.get(sorted[end])) == 0) {
+                    end++;
+                }
+                if (end - start > 1) {
+                    ties.add(new int[]{start, end});
+                    orderings = Math.min(orderings * factorial(end - start), MAX_TIE_PERMUTATIONS + 1);
+                }
+            }
+            if (ties.isEmpty() || orderings > MAX_TIE_PERMUTATIONS) {
+                return permute.apply(state, renumbering(sorted));
+            }
+
+            S[] min = newArray(1);
+            forEachTieOrder(sorted, ties, 0, groupPermutations, candidate -> {
+                S permuted = permute.apply(state, renumbering(candidate));
+                if (min[0] == null || order.compare(permuted, min[0]) < 0) {
+                    min[0] = permuted;
+                }
+            });
+            return min[0];
+        };
+    }
+
+    /**
+     * The least state, by {@code order}, among all {@code processes!} permutations of a state.
+     * {@code order} must be a total order consistent with {@code equals}, so that every state of
+     * an orbit yields the same minimum; otherwise an orbit may keep several representatives.
+     * This costs {@code processes!} permutations per state, so it is only practical for a few
+     * processes; {@link #sortedProcesses} is the scalable alternative.
+     *
+     * @param permute applies a permutation to a state: process {@code i} becomes process
+     *                {@code permutation[i]}, along with its location, its variables and any
+     *                values naming it
+     */
+    public static <S> UnaryOperator<S> minimumOverPermutations(int processes, BiFunction<S, int[], S> permute, Comparator<? super S> order) {
+        List<int[]> permutations = new ArrayList<>();
+        permutations(new int[processes], new boolean[processes], 0, permutations);
+        return state -> {
+            S min = state;
+            for (int[] permutation : permutations) {
+                S permuted = permute.apply(state, permutation);
+                if (order.compare(permuted, min) < 0) {
+                    min = permuted;
+                }
+            }
+            return min;
+        };
+    }
+
+    /**
+     * Calls {@code action} with every rearrangement of {@code sorted} that permutes only within
+     * the tie runs from {@code ties.get(t)} on. {@code cache.get(k)} holds the permutations of
+     * {@code 0..k-1}, filled on demand.
+     */
+    private static void forEachTieOrder(Integer[] sorted, List<int[]> ties, int t, List<List<int[]>> cache, Consumer<Integer[]> action) {
+        if (t == ties.size()) {
+            action.accept(sorted);
+            return;
+        }
+        int start = ties.get(t)[0];
+        int size = ties.get(t)[1] - start;
+        List<int[]> shuffles;
+        synchronized (cache) {
+            while (cache.size() <= size) {
+                List<int[]> all = new ArrayList<>();
+                permutations(new int[cache.size()], new boolean[cache.size()], 0, all);
+                cache.add(all);
+            }
+            shuffles = cache.get(size);
+        }
+        Integer[] run = Arrays.copyOfRange(sorted, start, start + size);
+        for (int[] shuffle : shuffles) {
+            Integer[] candidate = sorted.clone();
+            for (int i = 0; i < size; i++) {
+                candidate[start + i] = run[shuffle[i]];
+            }
+            forEachTieOrder(candidate, ties, t + 1, cache, action);
+        }
+    }
+
+    /**
+     * @return the permutation that moves the process at {@code sorted[j]} to position {@code j}.
+     */
+    private static int[] renumbering(Integer[] sorted) {
+        int[] permutation = new int[sorted.length];
+        for (int j = 0; j < sorted.length; j++) {
+            permutation[sorted[j]] = j;
+        }
+        return permutation;
+    }
+
+    private static long factorial(int n) {
+        long result = 1;
+        for (int i = 2; i <= n && result <= MAX_TIE_PERMUTATIONS; i++) {
+            result *= i;
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> S[] newArray(int size) {
+        return (S[]) new Object[size];
+    }
+
+    private static void permutations(int[] prefix, boolean[] used, int length, List<int[]> result) {
+        if (length == prefix.length) {
+            result.add(prefix.clone());
+            return;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (!used[i]) {
+                used[i] = true;
+                prefix[length] = i;
+                permutations(prefix, used, length + 1, result);
+                used[i] = false;
+            }
+        }
+    }
+}
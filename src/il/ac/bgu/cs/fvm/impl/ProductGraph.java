@@ -0,0 +1,151 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.automata.Automaton;
+import il.ac.bgu.cs.fvm.automata.MultiColorAutomaton;
+import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * The product of a transition system and an automaton, explored lazily from
+ * {@code I x delta(Q0, L(s0))}. Matches {@link FvmFacadeImpl#product} edge for edge.
+ * Acceptance is left to the emptiness check, so the same graph serves plain and
+ * generalized (multi-color) automata.
+ * <p>
+ * A product node is a {@code long} packing the transition-system state id (high half) and
+ * the automaton state id (low half). Ids of an {@link IndexedTransitionSystem} are used as they
+ * are; other transition systems are interned on the fly. The automaton is a
+ * {@link CompiledAutomaton}, and each transition-system state's label is mapped to a letter id
+ * once, so a step does no hashing.
+ */
+class ProductGraph<S, Q, P> implements ImplicitGraph<Long> {
+    private static final int UNKNOWN = -2;
+
+    private final TransitionSystem<S, ?, P> ts;
+    private final IndexedTransitionSystem<S, ?, P> indexed;
+    private final Function<S, ? extends Collection<S>> tsPost;
+    private final Interner<S> tsStates = new Interner<>();
+    private final List<int[]> tsSuccessors = new ArrayList<>();
+    // Indexed by transition-system state id: the automaton letter of its label.
+    private final IntList tsLetters = new IntList();
+
+    private final CompiledAutomaton<Q, P> aut;
+
+    ProductGraph(TransitionSystem<S, ?, P> ts, Function<S, ? extends Collection<S>> tsPost, Automaton<Q, P> aut) {
+        this(ts, tsPost, new CompiledAutomaton<>(aut.getInitialStates(), aut.getTransitions()));
+    }
+
+    ProductGraph(TransitionSystem<S, ?, P> ts, Function<S, ? extends Collection<S>> tsPost, MultiColorAutomaton<Q, P> aut) {
+        this(ts, tsPost, new CompiledAutomaton<>(aut.getInitialStates(), aut.getTransitions()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProductGraph(TransitionSystem<S, ?, P> ts, Function<S, ? extends Collection<S>> tsPost, CompiledAutomaton<Q, P> aut) {
+        this.ts = ts;
+        this.indexed = ts instanceof IndexedTransitionSystem ? (IndexedTransitionSystem<S, ?, P>) ts : null;
+        this.tsPost = tsPost;
+        this.aut = aut;
+    }
+
+    @Override
+    public Collection<Long> initialNodes() {
+        List<Long> result = new ArrayList<>();
+        int[] tsInitial = indexed != null ?
+                indexed.initialStateIds() :
+                ts.getInitialStates().stream().mapToInt(this::tsId).toArray();
+        for (int s : tsInitial) {
+            for (int q0 : aut.initialStates()) {
+                for (int q : aut.next(q0, letter(s))) {
+                    result.add(node(s, q));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<Long> successors(Long node) {
+        List<Long> result = new ArrayList<>();
+        int q = autId(node);
+        for (int s : tsSuccessors(tsId(node))) {
+            for (int next : aut.next(q, letter(s))) {
+                result.add(node(s, next));
+            }
+        }
+        return result;
+    }
+
+    S tsState(long node) {
+        int id = tsId(node);
+        return indexed != null ? indexed.state(id) : tsStates.value(id);
+    }
+
+    Q autState(long node) {
+        return aut.state(autId(node));
+    }
+
+    /**
+     * @return a test for "the automaton component is in {@code states}", evaluated once per
+     * automaton state.
+     */
+    Predicate<Long> inAutomatonStates(Set<Q> states) {
+        BitSet member = new BitSet(aut.stateCount());
+        for (int q = 0; q < aut.stateCount(); q++) {
+            member.set(q, states.contains(aut.state(q)));
+        }
+        return node -> member.get(autId(node));
+    }
+
+    private static long node(int s, int q) {
+        return (long) s << 32 | q;
+    }
+
+    private static int tsId(long node) {
+        return (int) (node >>> 32);
+    }
+
+    private static int autId(long node) {
+        return (int) node;
+    }
+
+    private int tsId(S s) {
+        int id = tsStates.intern(s);
+        if (id == tsSuccessors.size()) {
+            tsSuccessors.add(null);
+        }
+        return id;
+    }
+
+    private int[] tsSuccessors(int s) {
+        if (indexed != null) {
+            return indexed.successorIds(s);
+        }
+        int[] successors = tsSuccessors.get(s);
+        if (successors == null) {
+            successors = tsPost.apply(tsStates.value(s)).stream().mapToInt(this::tsId).toArray();
+            tsSuccessors.set(s, successors);
+        }
+        return successors;
+    }
+
+    /**
+     * The automaton letter of the label of transition-system state {@code s}, looked up once.
+     */
+    private int letter(int s) {
+        while (tsLetters.size() <= s) {
+            tsLetters.add(UNKNOWN);
+        }
+        int letter = tsLetters.get(s);
+        if (letter == UNKNOWN) {
+            letter = aut.letter(indexed != null ? indexed.label(s) : ts.getLabel(tsStates.value(s)));
+            tsLetters.set(s, letter);
+        }
+        return letter;
+    }
+}
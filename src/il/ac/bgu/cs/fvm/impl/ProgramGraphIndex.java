@@ -0,0 +1,42 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.programgraph.ActionDef;
+import il.ac.bgu.cs.fvm.programgraph.PGTransition;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The outgoing edges of every location of a program graph, and the {@link ActionDef}s matching
+ * every action, computed once so exploring a state costs its location's out-degree.
+ */
+class ProgramGraphIndex<L, A> {
+    private final Map<L, List<PGTransition<L, A>>> outgoing = new HashMap<>();
+    private final Map<A, List<ActionDef>> actionDefs = new HashMap<>();
+
+    ProgramGraphIndex(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs) {
+        for (PGTransition<L, A> t : pg.getTransitions()) {
+            outgoing.computeIfAbsent(t.getFrom(), l -> new ArrayList<>()).add(t);
+            this.actionDefs.computeIfAbsent(t.getAction(), a -> actionDefs.stream()
+                    .filter(ad -> ad.isMatchingAction(a))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    List<PGTransition<L, A>> outgoing(L location) {
+        return outgoing.getOrDefault(location, Collections.emptyList());
+    }
+
+    /**
+     * @return the action defs matching an action of the program graph.
+     */
+    List<ActionDef> actionDefs(Object action) {
+        return actionDefs.getOrDefault(action, Collections.emptyList());
+    }
+}
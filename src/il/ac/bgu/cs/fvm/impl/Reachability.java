@@ -0,0 +1,98 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Worklist-based reachability over an implicit graph, in O(|S|+|T|).
+ * Each state is reported to a {@link Visitor} exactly once, when it is discovered.
+ */
+public final class Reachability {
+
+    /**
+     * Receives every discovered state, in discovery order.
+     */
+    @FunctionalInterface
+    public interface Visitor<S> {
+        /**
+         * @param state  the discovered state
+         * @param parent the state it was discovered from, or {@code null} for an initial state
+         * @param depth  length of the search-tree path from an initial state
+         * @param order  0-based discovery index
+         */
+        void discovered(S state, S parent, int depth, int order);
+    }
+
+    public enum Order {
+        BREADTH_FIRST, DEPTH_FIRST
+    }
+
+    private Reachability() {
+    }
+
+    public static <S> Set<S> explore(Collection<S> initial, Function<S, ? extends Collection<S>> successors) {
+        return explore(initial, successors, Order.BREADTH_FIRST, (s, p, d, o) -> {
+        });
+    }
+
+    /**
+     * Explores every state reachable from {@code initial}.
+     *
+     * @return the set of reachable states
+     */
+    public static <S> Set<S> explore(Collection<S> initial, Function<S, ? extends Collection<S>> successors,
+                                     Order order, Visitor<? super S> visitor) {
+        Set<S> visited = new HashSet<>();
+        Deque<Node<S>> worklist = new ArrayDeque<>();
+        int discovered = 0;
+
+        if (order == Order.BREADTH_FIRST) {
+            for (S s : initial) {
+                if (visited.add(s)) {
+                    visitor.discovered(s, null, 0, discovered++);
+                    worklist.addLast(new Node<>(s, null, 0));
+                }
+            }
+            while (!worklist.isEmpty()) {
+                Node<S> node = worklist.pollFirst();
+                for (S next : successors.apply(node.state)) {
+                    if (visited.add(next)) {
+                        visitor.discovered(next, node.state, node.depth + 1, discovered++);
+                        worklist.addLast(new Node<>(next, node.state, node.depth + 1));
+                    }
+                }
+            }
+        } else {
+            initial.forEach(s -> worklist.push(new Node<>(s, null, 0)));
+            while (!worklist.isEmpty()) {
+                Node<S> node = worklist.pop();
+                if (visited.add(node.state)) {
+                    visitor.discovered(node.state, node.parent, node.depth, discovered++);
+                    for (S next : successors.apply(node.state)) {
+                        if (!visited.contains(next)) {
+                            worklist.push(new Node<>(next, node.state, node.depth + 1));
+                        }
+                    }
+                }
+            }
+        }
+
+        return visited;
+    }
+
+    private static final class Node<S> {
+        final S state;
+        final S parent;
+        final int depth;
+
+        Node(S state, S parent, int depth) {
+            this.state = state;
+            this.parent = parent;
+            this.depth = depth;
+        }
+    }
+}
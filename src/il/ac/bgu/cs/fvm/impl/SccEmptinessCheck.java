@@ -0,0 +1,178 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * On-the-fly emptiness check for generalized Buchi acceptance, after Couvreur (1999).
+ * A single Tarjan-style pass keeps a stack of SCC roots, each annotated with the union of
+ * the acceptance sets seen in its component; the search stops as soon as some non-trivial
+ * component covers all {@code acceptanceSets} sets. Plain Buchi acceptance is the case of a
+ * single set.
+ */
+class SccEmptinessCheck<N> {
+    private static final int DEAD = 0;
+
+    private final ImplicitGraph<N> graph;
+    private final Function<N, BitSet> acceptance;
+    private final int acceptanceSets;
+
+    // DFS number of every visited node; DEAD once its component is complete.
+    private final Map<N, Integer> index = new HashMap<>();
+    private final Deque<Frame<N>> callStack = new ArrayDeque<>();
+    private final Deque<Root> roots = new ArrayDeque<>();
+    private final Deque<N> active = new ArrayDeque<>();
+    private int counter = DEAD;
+
+    /**
+     * @param acceptance     the acceptance sets (as indices {@code 0..acceptanceSets-1}) a node belongs to
+     * @param acceptanceSets number of acceptance sets; with none, every cycle is accepting
+     */
+    SccEmptinessCheck(ImplicitGraph<N> graph, Function<N, BitSet> acceptance, int acceptanceSets) {
+        this.graph = graph;
+        this.acceptance = acceptance;
+        this.acceptanceSets = acceptanceSets;
+    }
+
+    SccEmptinessCheck(ImplicitGraph<N> graph, Predicate<N> accepting) {
+        this(graph, n -> {
+            BitSet sets = new BitSet(1);
+            sets.set(0, accepting.test(n));
+            return sets;
+        }, 1);
+    }
+
+    /**
+     * @return a reachable cycle visiting every acceptance set, or {@code null} if there is none.
+     */
+    Lasso<N> findAcceptingCycle() {
+        for (N initial : graph.initialNodes()) {
+            if (!index.containsKey(initial)) {
+                Lasso<N> lasso = search(initial);
+                if (lasso != null) {
+                    return lasso;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Lasso<N> search(N start) {
+        push(start);
+        while (!callStack.isEmpty()) {
+            Frame<N> top = callStack.peek();
+            if (top.successors.hasNext()) {
+                N next = top.successors.next();
+                Integer nextIndex = index.get(next);
+                if (nextIndex == null) {
+                    push(next);
+                } else if (nextIndex != DEAD) {
+                    // next is in a component still on the stack: merge everything above it.
+                    BitSet merged = new BitSet();
+                    while (roots.peek().index > nextIndex) {
+                        merged.or(roots.pop().acceptance);
+                    }
+                    Root root = roots.peek();
+                    root.acceptance.or(merged);
+                    if (root.acceptance.cardinality() == acceptanceSets) {
+                        return lasso(root);
+                    }
+                }
+            } else {
+                callStack.pop();
+                if (roots.peek().index == index.get(top.node)) {
+                    roots.pop();
+                    N removed;
+                    do {
+                        removed = active.pop();
+                        index.put(removed, DEAD);
+                    } while (!removed.equals(top.node));
+                }
+            }
+        }
+        return null;
+    }
+
+    private void push(N node) {
+        index.put(node, ++counter);
+        BitSet sets = (BitSet) acceptance.apply(node).clone();
+        sets.clear(acceptanceSets, Math.max(acceptanceSets, sets.length()));
+        roots.push(new Root(counter, sets));
+        active.push(node);
+        callStack.push(new Frame<>(node, graph.successors(node).iterator()));
+    }
+
+    /**
+     * The accepting component is the part of the active stack numbered from {@code root} on;
+     * the call stack holds a path from an initial node through the root of that component.
+     */
+    private Lasso<N> lasso(Root root) {
+        List<N> prefix = new ArrayList<>();
+        Iterator<Frame<N>> frames = callStack.descendingIterator();
+        N entry;
+        do {
+            entry = frames.next().node;
+            prefix.add(entry);
+        } while (index.get(entry) != root.index);
+
+        Predicate<N> inComponent = n -> {
+            Integer i = index.get(n);
+            return i != null && i >= root.index;
+        };
+
+        List<N> cycle = new ArrayList<>();
+        BitSet covered = (BitSet) acceptance.apply(entry).clone();
+        N current = entry;
+        for (int set = 0; set < acceptanceSets; set++) {
+            if (!covered.get(set)) {
+                int wanted = set;
+                List<N> path = pathTo(current, n -> acceptance.apply(n).get(wanted), inComponent);
+                path.forEach(n -> covered.or(acceptance.apply(n)));
+                cycle.addAll(path);
+                current = cycle.get(cycle.size() - 1);
+            }
+        }
+        if (cycle.isEmpty() || !current.equals(entry)) {
+            N target = entry;
+            cycle.addAll(pathTo(current, target::equals, inComponent));
+        }
+
+        return new Lasso<>(prefix, cycle);
+    }
+
+    private List<N> pathTo(N from, Predicate<N> goal, Predicate<N> allowed) {
+        List<N> path = ShortestPaths.pathFrom(graph, from, goal, allowed);
+        if (path == null) {
+            throw new IllegalStateException("Component is not strongly connected");
+        }
+        return path;
+    }
+
+    private static final class Root {
+        final int index;
+        final BitSet acceptance;
+
+        Root(int index, BitSet acceptance) {
+            this.index = index;
+            this.acceptance = acceptance;
+        }
+    }
+
+    private static final class Frame<N> {
+        final N node;
+        final Iterator<N> successors;
+
+        Frame(N node, Iterator<N> successors) {
+            this.node = node;
+            this.successors = successors;
+        }
+    }
+}
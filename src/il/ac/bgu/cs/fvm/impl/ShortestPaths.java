@@ -0,0 +1,108 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Breadth-first path queries over an {@link ImplicitGraph}. Paths are recovered from parent
+ * pointers, so memory stays linear in the number of nodes explored.
+ */
+final class ShortestPaths {
+
+    private ShortestPaths() {
+    }
+
+    /**
+     * @return a shortest path from one of {@code sources} to a node satisfying {@code goal},
+     * both ends included, or {@code null} if there is none.
+     */
+    static <N> List<N> path(ImplicitGraph<N> graph, Collection<N> sources, Predicate<N> goal) {
+        Map<N, N> parent = new HashMap<>();
+        Deque<N> queue = new ArrayDeque<>();
+        for (N source : sources) {
+            if (goal.test(source)) {
+                return Collections.singletonList(source);
+            }
+            if (!parent.containsKey(source)) {
+                parent.put(source, null);
+                queue.add(source);
+            }
+        }
+        while (!queue.isEmpty()) {
+            N n = queue.poll();
+            for (N next : graph.successors(n)) {
+                if (!parent.containsKey(next)) {
+                    parent.put(next, n);
+                    if (goal.test(next)) {
+                        return unwind(parent, next);
+                    }
+                    queue.add(next);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a shortest non-empty path from {@code from} to a node satisfying {@code goal},
+     * staying inside {@code allowed}; {@code from} itself is not included. {@code null} if
+     * there is no such path.
+     */
+    static <N> List<N> pathFrom(ImplicitGraph<N> graph, N from, Predicate<N> goal, Predicate<N> allowed) {
+        Map<N, N> parent = new HashMap<>();
+        Deque<N> queue = new ArrayDeque<>();
+        queue.add(from);
+        while (!queue.isEmpty()) {
+            N n = queue.poll();
+            for (N next : graph.successors(n)) {
+                if (!allowed.test(next)) {
+                    continue;
+                }
+                if (goal.test(next)) {
+                    List<N> path = n.equals(from) ? new ArrayList<>() : unwind(parent, n);
+                    path.add(next);
+                    return path;
+                }
+                if (!next.equals(from) && !parent.containsKey(next)) {
+                    parent.put(next, n.equals(from) ? null : n);
+                    queue.add(next);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a lasso through an {@code accepting} node of {@code lasso}'s cycle, reached by a
+     * shortest prefix and closed by a shortest cycle through it. The lasso is first rotated so
+     * it enters the cycle at that node, since an SCC-based search enters at the component root,
+     * which need not be accepting.
+     */
+    static <N> Lasso<N> shorten(ImplicitGraph<N> graph, Lasso<N> lasso, Predicate<N> accepting) {
+        N entry = lasso.getPrefix().get(lasso.getPrefix().size() - 1);
+        if (!accepting.test(entry)) {
+            entry = lasso.getCycle().stream().filter(accepting).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Lasso has no accepting node on its cycle"));
+        }
+        N target = entry;
+        List<N> prefix = new ArrayList<>(path(graph, graph.initialNodes(), target::equals));
+        List<N> cycle = pathFrom(graph, target, target::equals, n -> true);
+        return new Lasso<>(prefix, cycle);
+    }
+
+    private static <N> List<N> unwind(Map<N, N> parent, N last) {
+        List<N> path = new ArrayList<>();
+        for (N n = last; n != null; n = parent.get(n)) {
+            path.add(n);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
@@ -0,0 +1,141 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes states for {@link MappedStateStore}. Decoding an encoded state must give an equal
+ * state.
+ */
+public interface StateCodec<S> {
+
+    void write(S state, DataOutput out) throws IOException;
+
+    S read(DataInput in) throws IOException;
+
+    /**
+     * A compact codec for the values states are usually made of: {@code null}, strings, integers,
+     * longs, booleans, {@link Pair}s, lists and maps (as {@code ArrayList}/{@code HashMap}) of
+     * those, recursively. Anything else is written with Java serialization.
+     */
+    @SuppressWarnings("unchecked")
+    static <S> StateCodec<S> values() {
+        return new StateCodec<S>() {
+            @Override
+            public void write(S state, DataOutput out) throws IOException {
+                writeValue(state, out);
+            }
+
+            @Override
+            public S read(DataInput in) throws IOException {
+                return (S) readValue(in);
+            }
+        };
+    }
+
+    static void writeValue(Object o, DataOutput out) throws IOException {
+        if (o == null) {
+            out.writeByte('N');
+        } else if (o instanceof String) {
+            // Not writeUTF, which is limited to 64 KB; program-graph locations can be longer.
+            byte[] bytes = ((String) o).getBytes(StandardCharsets.UTF_8);
+            out.writeByte('S');
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (o instanceof Integer) {
+            out.writeByte('I');
+            out.writeInt((Integer) o);
+        } else if (o instanceof Long) {
+            out.writeByte('J');
+            out.writeLong((Long) o);
+        } else if (o instanceof Boolean) {
+            out.writeByte('Z');
+            out.writeBoolean((Boolean) o);
+        } else if (o instanceof Pair) {
+            out.writeByte('P');
+            writeValue(((Pair<?, ?>) o).getFirst(), out);
+            writeValue(((Pair<?, ?>) o).getSecond(), out);
+        } else if (o instanceof List) {
+            out.writeByte('L');
+            out.writeInt(((List<?>) o).size());
+            for (Object e : (List<?>) o) {
+                writeValue(e, out);
+            }
+        } else if (o instanceof Map) {
+            out.writeByte('M');
+            out.writeInt(((Map<?, ?>) o).size());
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) o).entrySet()) {
+                writeValue(e.getKey(), out);
+                writeValue(e.getValue(), out);
+            }
+        } else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+                objects.writeObject(o);
+            }
+            out.writeByte('O');
+            out.writeInt(bytes.size());
+            out.write(bytes.toByteArray());
+        }
+    }
+
+    static Object readValue(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case 'N':
+                return null;
+            case 'S': {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            case 'I':
+                return in.readInt();
+            case 'J':
+                return in.readLong();
+            case 'Z':
+                return in.readBoolean();
+            case 'P':
+                return Pair.pair(readValue(in), readValue(in));
+            case 'L': {
+                int size = in.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case 'M': {
+                int size = in.readInt();
+                Map<Object, Object> map = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(in), readValue(in));
+                }
+                return map;
+            }
+            case 'O': {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return objects.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            }
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.programgraph.ActionDef;
+import il.ac.bgu.cs.fvm.programgraph.ConditionDef;
+import il.ac.bgu.cs.fvm.programgraph.PGTransition;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * The reachable states of a program graph whose variables range over declared finite domains,
+ * computed with {@link Bdd}s instead of one state at a time.
+ * <p>
+ * A state is encoded in binary: the location's index, then each variable's index in its domain.
+ * Condition and action strings stay opaque, so the transition relation is built lazily, per
+ * (condition, action) pair, from the {@link ConditionDef}s and {@link ActionDef}s: each step
+ * evaluates them once for every new valuation of the variables the pair mentions, and leaves
+ * the other variables unchanged. A pair therefore must not assign variables its strings do not
+ * name. Reachability is a breadth-first fixpoint over the image of the whole frontier.
+ */
+public class SymbolicProgramGraph<L> {
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private final Bdd bdd;
+    private final Set<ConditionDef> conditionDefs;
+    private final Interner<L> locations = new Interner<>();
+    private final Field location;
+    private final Map<String, Field> variables = new LinkedHashMap<>();
+    private final int currentCube;
+    private final int[] nextToCurrent;
+    private final int reachable;
+    private int iterations;
+
+    /**
+     * A location or a variable: its values, and the state bits that hold their indices, least
+     * significant first. Bit {@code k} is BDD variable {@code 2 * slots[k]} in the current state
+     * and {@code 2 * slots[k] + 1} in the next one.
+     */
+    private static final class Field {
+        final String name;
+        final List<Object> values;
+        final Map<Object, Integer> indices = new HashMap<>();
+        final int[] slots;
+
+        Field(String name, List<Object> values, int firstSlot) {
+            this.name = name;
+            this.values = values;
+            for (int i = 0; i < values.size(); i++) {
+                indices.put(values.get(i), i);
+            }
+            slots = new int[Math.max(1, 32 - Integer.numberOfLeadingZeros(values.size() - 1))];
+            for (int k = 0; k < slots.length; k++) {
+                slots[k] = firstSlot + k;
+            }
+        }
+    }
+
+    /**
+     * The transitions sharing a condition and an action, and the part of their relation built
+     * so far: one entry for every valuation of {@link #support} in {@link #covered}.
+     */
+    private static final class Group {
+        final String condition;
+        final Object action;
+        final List<Field> support;
+        final int[] supportVars;
+        final int otherVars;
+        final int sources;
+        final int moves;
+        final int frame;
+        int covered = Bdd.FALSE;
+        int relation = Bdd.FALSE;
+
+        Group(String condition, Object action, List<Field> support, int[] supportVars, int otherVars, int sources, int moves, int frame) {
+            this.condition = condition;
+            this.action = action;
+            this.support = support;
+            this.supportVars = supportVars;
+            this.otherVars = otherVars;
+            this.sources = sources;
+            this.moves = moves;
+            this.frame = frame;
+        }
+    }
+
+    <A> SymbolicProgramGraph(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs, Map<String, ? extends Collection<?>> domains) {
+        this.conditionDefs = conditionDefs;
+        pg.getInitialLocations().forEach(locations::intern);
+        pg.getLocations().forEach(locations::intern);
+        pg.getTransitions().forEach(t -> {
+            locations.intern(t.getFrom());
+            locations.intern(t.getTo());
+        });
+        List<Object> locationValues = new ArrayList<>();
+        for (int i = 0; i < locations.size(); i++) {
+            locationValues.add(locations.value(i));
+        }
+        location = new Field(null, locationValues, 0);
+        int slots = location.slots.length;
+        for (Map.Entry<String, ? extends Collection<?>> e : domains.entrySet()) {
+            if (e.getValue().isEmpty()) {
+                throw new IllegalArgumentException("Variable " + e.getKey() + " has an empty domain");
+            }
+            Field field = new Field(e.getKey(), new ArrayList<>(new LinkedHashSet<>(e.getValue())), slots);
+            variables.put(e.getKey(), field);
+            slots += field.slots.length;
+        }
+
+        bdd = new Bdd(2 * slots);
+        int[] current = new int[slots];
+        nextToCurrent = new int[2 * slots];
+        for (int k = 0; k < slots; k++) {
+            current[k] = 2 * k;
+            nextToCurrent[2 * k] = 2 * k;
+            nextToCurrent[2 * k + 1] = 2 * k;
+        }
+        currentCube = bdd.ref(bdd.cube(current));
+
+        List<Group> groups = groups(pg);
+        int states = bdd.ref(initialStates(pg, actionDefs));
+        int frontier = bdd.ref(states);
+        while (frontier != Bdd.FALSE) {
+            iterations++;
+            int image = Bdd.FALSE;
+            for (Group group : groups) {
+                extend(group, frontier, actionDefs);
+                image = keep(image, bdd.or(image, bdd.relProd(frontier, group.relation, currentCube)));
+            }
+            image = keep(image, bdd.replace(image, nextToCurrent));
+            frontier = keep(frontier, bdd.and(image, bdd.not(states)));
+            bdd.deref(image);
+            states = keep(states, bdd.or(states, frontier));
+        }
+        reachable = states;
+        for (Group group : groups) {
+            bdd.deref(group.otherVars);
+            bdd.deref(group.sources);
+            bdd.deref(group.moves);
+            bdd.deref(group.frame);
+            bdd.deref(group.covered);
+            bdd.deref(group.relation);
+        }
+        bdd.gc();
+    }
+
+    /**
+     * @return the number of reachable states.
+     */
+    public double getReachableStateCount() {
+        return bdd.satCount(reachable, currentCube);
+    }
+
+    /**
+     * @return the number of image steps the fixpoint took, which is the depth of the state
+     * space plus one.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the number of BDD decision nodes representing the reachable states.
+     */
+    public int getReachableNodeCount() {
+        return bdd.size(reachable);
+    }
+
+    public boolean isReachable(L loc) {
+        int id = locations.id(loc);
+        return id >= 0 && bdd.and(reachable, value(location, id, false)) != Bdd.FALSE;
+    }
+
+    /**
+     * @return whether {@code condition} holds in some reachable state.
+     */
+    public boolean canBeTrue(String condition) {
+        return bdd.and(reachable, satisfying(condition)) != Bdd.FALSE;
+    }
+
+    /**
+     * @return whether {@code condition} holds in every reachable state.
+     */
+    public boolean isInvariant(String condition) {
+        return bdd.and(reachable, bdd.not(satisfying(condition))) == Bdd.FALSE;
+    }
+
+    /**
+     * @return a reachable state in which {@code condition} holds, or {@code null} if there is
+     * none.
+     */
+    public Pair<L, Map<String, Object>> findReachableState(String condition) {
+        int[] bits = bdd.satOne(bdd.and(reachable, satisfying(condition)));
+        if (bits == null) {
+            return null;
+        }
+        Map<String, Object> eval = new HashMap<>();
+        variables.values().forEach(field -> eval.put(field.name, field.values.get(decode(field, bits))));
+        return Pair.pair(locations.value(decode(location, bits)), eval);
+    }
+
+    private <A> int initialStates(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs) {
+        List<Map<String, Object>> evals = pg.getInitalizations().stream().map(init -> {
+            Map<String, Object> eval = new HashMap<>();
+            for (String s : init) {
+                for (ActionDef ad : matching(actionDefs, s)) {
+                    eval = ad.effect(eval, s);
+                }
+            }
+            return eval;
+        }).collect(Collectors.toList());
+        if (evals.isEmpty()) {
+            evals.add(new HashMap<>());
+        }
+
+        int result = Bdd.FALSE;
+        for (Map<String, Object> eval : evals) {
+            for (String name : eval.keySet()) {
+                if (!variables.containsKey(name)) {
+                    throw new IllegalArgumentException("Variable " + name + " has no declared domain");
+                }
+            }
+            int valuation = Bdd.TRUE;
+            for (Field field : variables.values()) {
+                if (!eval.containsKey(field.name)) {
+                    throw new IllegalArgumentException("Variable " + field.name + " is not initialized");
+                }
+                valuation = keep(valuation, bdd.and(valuation, value(field, index(field, eval.get(field.name)), false)));
+            }
+            for (L loc : pg.getInitialLocations()) {
+                result = keep(result, bdd.or(result, bdd.and(valuation, value(location, locations.id(loc), false))));
+            }
+            bdd.deref(valuation);
+        }
+        bdd.deref(result);
+        return result;
+    }
+
+    private <A> List<Group> groups(ProgramGraph<L, A> pg) {
+        Map<Pair<String, A>, List<PGTransition<L, A>>> byLabel = new LinkedHashMap<>();
+        pg.getTransitions().forEach(t -> byLabel.computeIfAbsent(Pair.pair(t.getCondition(), t.getAction()), k -> new ArrayList<>()).add(t));
+
+        List<Group> groups = new ArrayList<>();
+        byLabel.forEach((label, transitions) -> {
+            List<Field> support = support(label.getFirst() + " " + label.getSecond());
+            int sources = bdd.ref(Bdd.FALSE);
+            int moves = bdd.ref(Bdd.FALSE);
+            for (PGTransition<L, A> t : transitions) {
+                int from = bdd.ref(value(location, locations.id(t.getFrom()), false));
+                sources = keep(sources, bdd.or(sources, from));
+                moves = keep(moves, bdd.or(moves, bdd.and(from, value(location, locations.id(t.getTo()), true))));
+                bdd.deref(from);
+            }
+            int frame = bdd.ref(Bdd.TRUE);
+            List<Integer> others = new ArrayList<>();
+            List<Integer> supportVars = new ArrayList<>();
+            for (int slot : location.slots) {
+                others.add(2 * slot);
+            }
+            for (Field field : variables.values()) {
+                for (int slot : field.slots) {
+                    if (support.contains(field)) {
+                        supportVars.add(2 * slot);
+                    } else {
+                        others.add(2 * slot);
+                        frame = keep(frame, bdd.and(frame, bdd.biimp(bdd.var(2 * slot), bdd.var(2 * slot + 1))));
+                    }
+                }
+            }
+            int otherVars = bdd.ref(bdd.cube(others.stream().mapToInt(Integer::intValue).toArray()));
+            groups.add(new Group(label.getFirst(), label.getSecond(), support,
+                    supportVars.stream().mapToInt(Integer::intValue).toArray(), otherVars, sources, moves, frame));
+        });
+        return groups;
+    }
+
+    /**
+     * Adds to {@code group}'s relation the valuations of its support that occur in
+     * {@code frontier} at one of its source locations and were not seen before.
+     */
+    private void extend(Group group, int frontier, Set<ActionDef> actionDefs) {
+        int fresh = bdd.ref(bdd.exists(bdd.and(frontier, group.sources), group.otherVars));
+        fresh = keep(fresh, bdd.and(fresh, bdd.not(group.covered)));
+        if (fresh == Bdd.FALSE) {
+            return;
+        }
+        List<int[]> valuations = valuations(fresh, group.support, group.supportVars);
+        group.covered = keep(group.covered, bdd.or(group.covered, fresh));
+        bdd.deref(fresh);
+
+        List<ActionDef> effects = matching(actionDefs, group.action);
+        int core = Bdd.FALSE;
+        for (int[] valuation : valuations) {
+            Map<String, Object> eval = evaluation(group.support, valuation);
+            if (!conditionDefs.stream().anyMatch(c -> c.evaluate(eval, group.condition))) {
+                continue;
+            }
+            int source = bdd.ref(valuation(group.support, valuation, false));
+            List<Map<String, Object>> results = effects.isEmpty()
+                    ? Collections.singletonList(eval)
+                    : effects.stream().map(ad -> ad.effect(eval, group.action)).collect(Collectors.toList());
+            for (Map<String, Object> result : results) {
+                int[] target = new int[group.support.size()];
+                for (String name : result.keySet()) {
+                    if (!variables.containsKey(name)) {
+                        throw new IllegalArgumentException("Variable " + name + " has no declared domain");
+                    }
+                    if (!eval.containsKey(name)) {
+                        throw new IllegalStateException("Action " + group.action + " assigns " + name + ", which it does not name");
+                    }
+                }
+                for (int i = 0; i < target.length; i++) {
+                    target[i] = index(group.support.get(i), result.get(group.support.get(i).name));
+                }
+                core = keep(core, bdd.or(core, bdd.and(source, valuation(group.support, target, true))));
+            }
+            bdd.deref(source);
+        }
+        group.relation = keep(group.relation, bdd.or(group.relation, bdd.and(core, bdd.and(group.moves, group.frame))));
+        bdd.deref(core);
+    }
+
+    /**
+     * @return the states whose valuation of the variables {@code condition} names satisfies it,
+     * among the valuations that occur in a reachable state.
+     */
+    private int satisfying(String condition) {
+        List<Field> support = support(condition);
+        List<Integer> others = new ArrayList<>();
+        List<Integer> supportVars = new ArrayList<>();
+        for (int slot : location.slots) {
+            others.add(2 * slot);
+        }
+        for (Field field : variables.values()) {
+            for (int slot : field.slots) {
+                (support.contains(field) ? supportVars : others).add(2 * slot);
+            }
+        }
+        int projection = bdd.ref(bdd.exists(reachable, bdd.cube(others.stream().mapToInt(Integer::intValue).toArray())));
+        List<int[]> valuations = valuations(projection, support, supportVars.stream().mapToInt(Integer::intValue).toArray());
+        bdd.deref(projection);
+
+        int result = Bdd.FALSE;
+        for (int[] valuation : valuations) {
+            Map<String, Object> eval = evaluation(support, valuation);
+            if (conditionDefs.stream().anyMatch(c -> c.evaluate(eval, condition))) {
+                result = keep(result, bdd.or(result, valuation(support, valuation, false)));
+            }
+        }
+        bdd.deref(result);
+        return result;
+    }
+
+    /**
+     * @return the declared variables named in {@code text}, in slot order.
+     */
+    private List<Field> support(String text) {
+        Set<String> names = new HashSet<>();
+        Matcher m = IDENTIFIER.matcher(text);
+        while (m.find()) {
+            names.add(m.group());
+        }
+        return variables.values().stream().filter(field -> names.contains(field.name)).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the value indices of {@code fields} in every assignment of {@code f}, which
+     * depends only on {@code vars}, the fields' current bits in order.
+     */
+    private List<int[]> valuations(int f, List<Field> fields, int[] vars) {
+        List<int[]> result = new ArrayList<>();
+        bdd.forEachSat(f, vars, bits -> {
+            int[] valuation = new int[fields.size()];
+            int bit = 0;
+            for (int i = 0; i < valuation.length; i++) {
+                for (int k = 0; k < fields.get(i).slots.length; k++) {
+                    valuation[i] |= (bits[bit++] ? 1 : 0) << k;
+                }
+            }
+            // Codes past the end of a domain encode no state.
+            for (int i = 0; i < valuation.length; i++) {
+                if (valuation[i] >= fields.get(i).values.size()) {
+                    return;
+                }
+            }
+            result.add(valuation);
+        });
+        return result;
+    }
+
+    private Map<String, Object> evaluation(List<Field> fields, int[] valuation) {
+        Map<String, Object> eval = new HashMap<>();
+        for (int i = 0; i < valuation.length; i++) {
+            eval.put(fields.get(i).name, fields.get(i).values.get(valuation[i]));
+        }
+        return eval;
+    }
+
+    private int valuation(List<Field> fields, int[] valuation, boolean next) {
+        int result = Bdd.TRUE;
+        for (int i = 0; i < valuation.length; i++) {
+            result = keep(result, bdd.and(result, value(fields.get(i), valuation[i], next)));
+        }
+        bdd.deref(result);
+        return result;
+    }
+
+    /**
+     * @return the states in which {@code field} holds the value at {@code index}.
+     */
+    private int value(Field field, int index, boolean next) {
+        int result = Bdd.TRUE;
+        for (int k = 0; k < field.slots.length; k++) {
+            int v = 2 * field.slots[k] + (next ? 1 : 0);
+            result = bdd.and(result, (index >> k & 1) == 1 ? bdd.var(v) : bdd.nvar(v));
+        }
+        return result;
+    }
+
+    private int decode(Field field, int[] bits) {
+        int index = 0;
+        for (int k = 0; k < field.slots.length; k++) {
+            // A don't-care bit may take either value, so reading it as 0 still decodes a state of f.
+            index |= (bits[2 * field.slots[k]] == 1 ? 1 : 0) << k;
+        }
+        return index;
+    }
+
+    private int index(Field field, Object value) {
+        Integer index = field.indices.get(value);
+        if (index == null) {
+            throw new IllegalArgumentException("Value " + value + " is outside the domain of " + field.name);
+        }
+        return index;
+    }
+
+    private static List<ActionDef> matching(Set<ActionDef> actionDefs, Object action) {
+        return actionDefs.stream().filter(ad -> ad.isMatchingAction(action)).collect(Collectors.toList());
+    }
+
+    /**
+     * Protects {@code f} in place of {@code old}, which it was computed from.
+     */
+    private int keep(int old, int f) {
+        bdd.ref(f);
+        bdd.deref(old);
+        return f;
+    }
+}
@@ -2,34 +2,57 @@ package il.ac.bgu.cs.fvm.impl;
 
 import il.ac.bgu.cs.fvm.exceptions.*;
 import il.ac.bgu.cs.fvm.transitionsystem.Transition;
-import il.ac.bgu.cs.fvm.transitionsystem.TransitionSystem;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
  * Created by Tal on 17/11/2017.
+ *
+ * States, actions and atomic propositions are interned to dense {@code int} ids; membership is
+ * kept in bit sets and transitions in primitive adjacency lists, so the graph algorithms in
+ * {@link FvmFacadeImpl} can run on ids. The {@code Set}/{@code Map} getters are read-only views
+ * that decode ids on access.
  */
-public class TransitionSystemImpl<S, A, P> implements TransitionSystem<S, A, P> {
+public class TransitionSystemImpl<S, A, P> implements IndexedTransitionSystem<S, A, P> {
     private String name;
-    private Set<S> states;
-    private Set<S> iStates;
-    private Set<A> actions;
-    private Set<Transition<S, A>> transitions;
-    private Set<P> atomicPropositions;
-    private Map<S, Set<P>> labels;
+    private Interner<S> stateIds;
+    private Interner<A> actionIds;
+    private Interner<P> propositionIds;
+    private BitSet states;
+    private BitSet iStates;
+    private BitSet actions;
+    private BitSet atomicPropositions;
+    // Indexed by state id.
+    private List<BitSet> labels;
+    // Indexed by state id: flat (action, target) and (action, source) pairs.
+    private List<IntList> successors;
+    private List<IntList> predecessors;
+    private IntTripleSet transitions;
 
     TransitionSystemImpl(){
         name = "";
-        states = new HashSet<>();
-        iStates = new HashSet<>();
-        actions = new HashSet<>();
-        transitions = new HashSet<>();
-        atomicPropositions = new HashSet<>();
-        labels = new HashMap<>();
-        states.forEach(s -> labels.put(s, new HashSet<>()));
+        stateIds = new Interner<>();
+        actionIds = new Interner<>();
+        propositionIds = new Interner<>();
+        states = new BitSet();
+        iStates = new BitSet();
+        actions = new BitSet();
+        atomicPropositions = new BitSet();
+        labels = new ArrayList<>();
+        successors = new ArrayList<>();
+        predecessors = new ArrayList<>();
+        transitions = new IntTripleSet();
     }
 
     @Override
@@ -45,125 +68,414 @@ public class TransitionSystemImpl<S, A, P> implements TransitionSystem<S, A, P>
 
     @Override
     public void addAction(A a) {
-        actions.add(a);
+        actions.set(actionIds.intern(a));
     }
 
     @Override
     public void addInitialState(S s) throws FVMException {
-        if(!states.contains(s)){
+        int id = stateId(s);
+        if(id < 0){
             throw new InvalidInitialStateException(s);
         }
-        iStates.add(s);
+        iStates.set(id);
     }
 
     @Override
     public void addState(S s) {
-        states.add(s);
-        labels.put(s, new HashSet<>());
+        int id = stateIds.intern(s);
+        if (id == labels.size()) {
+            labels.add(new BitSet());
+            successors.add(new IntList());
+            predecessors.add(new IntList());
+        }
+        states.set(id);
+        labels.get(id).clear();
     }
 
     @Override
     public void addTransition(Transition<S, A> t) throws FVMException {
-        if(!states.contains(t.getFrom()) || !actions.contains(t.getAction()) || !states.contains(t.getTo())){
+        int from = stateId(t.getFrom());
+        int action = actionId(t.getAction());
+        int to = stateId(t.getTo());
+        if(from < 0 || action < 0 || to < 0){
             throw new InvalidTransitionException(t);
         }
-        transitions.add(t);
+        if (transitions.add(from, action, to)) {
+            successors.get(from).add(action);
+            successors.get(from).add(to);
+            predecessors.get(to).add(action);
+            predecessors.get(to).add(from);
+        }
     }
 
     @Override
     public Set<A> getActions() {
-        return actions;
+        return new IdSet<>(actionIds, actions);
     }
 
     @Override
     public void addAtomicProposition(P p) {
-        atomicPropositions.add(p);
+        atomicPropositions.set(propositionIds.intern(p));
     }
 
     @Override
     public Set<P> getAtomicPropositions() {
-        return atomicPropositions;
+        return new IdSet<>(propositionIds, atomicPropositions);
     }
 
     @Override
     public void addToLabel(S s, P l) throws FVMException {
-        if(!states.contains(s) || !atomicPropositions.contains(l)){
+        int id = stateId(s);
+        int p = propositionId(l);
+        if(id < 0 || p < 0){
             throw new InvalidLablingPairException(s, l);
         }
-        labels.get(s).add(l);
+        labels.get(id).set(p);
     }
 
     @Override
     public Set<P> getLabel(S s) {
-        if(!states.contains(s)){
+        int id = stateId(s);
+        if(id < 0){
             throw new StateNotFoundException(s);
         }
-        return labels.get(s);
+        return label(id);
     }
 
     @Override
     public Set<S> getInitialStates() {
-        return iStates;
+        return new IdSet<>(stateIds, iStates);
     }
 
     @Override
     public Map<S, Set<P>> getLabelingFunction() {
-        return labels;
+        return new AbstractMap<S, Set<P>>() {
+            @Override
+            public Set<P> get(Object key) {
+                int id = stateId(key);
+                return id < 0 ? null : label(id);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return stateId(key) >= 0;
+            }
+
+            @Override
+            public Set<Entry<S, Set<P>>> entrySet() {
+                return new AbstractSet<Entry<S, Set<P>>>() {
+                    @Override
+                    public Iterator<Entry<S, Set<P>>> iterator() {
+                        Iterator<S> it = getStates().iterator();
+                        return new Iterator<Entry<S, Set<P>>>() {
+                            @Override
+                            public boolean hasNext() {
+                                return it.hasNext();
+                            }
+
+                            @Override
+                            public Entry<S, Set<P>> next() {
+                                S s = it.next();
+                                return new SimpleImmutableEntry<>(s, getLabel(s));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return states.cardinality();
+                    }
+                };
+            }
+        };
     }
 
     @Override
     public Set<S> getStates() {
-        return states;
+        return new IdSet<>(stateIds, states);
     }
 
     @Override
     public Set<Transition<S, A>> getTransitions() {
-        return transitions;
+        return new AbstractSet<Transition<S, A>>() {
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Transition)) {
+                    return false;
+                }
+                Transition<?, ?> t = (Transition<?, ?>) o;
+                int from = stateId(t.getFrom());
+                int action = actionId(t.getAction());
+                int to = stateId(t.getTo());
+                return from >= 0 && action >= 0 && to >= 0 && transitions.contains(from, action, to);
+            }
+
+            @Override
+            public int size() {
+                return transitions.size();
+            }
+
+            @Override
+            public Iterator<Transition<S, A>> iterator() {
+                return new Iterator<Transition<S, A>>() {
+                    private int from = states.nextSetBit(0);
+                    private int edge = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (from >= 0 && edge >= successors.get(from).size()) {
+                            from = states.nextSetBit(from + 1);
+                            edge = 0;
+                        }
+                        return from >= 0;
+                    }
+
+                    @Override
+                    public Transition<S, A> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        IntList out = successors.get(from);
+                        Transition<S, A> t = new Transition<>(stateIds.value(from), actionIds.value(out.get(edge)), stateIds.value(out.get(edge + 1)));
+                        edge += 2;
+                        return t;
+                    }
+                };
+            }
+        };
     }
 
     @Override
     public void removeAction(A a) throws FVMException {
-        if(transitions.stream().anyMatch(t -> t.getAction().equals(a))){
-            throw new DeletionOfAttachedActionException(a, TransitionSystemPart.TRANSITIONS);
+        int id = actionId(a);
+        if (id < 0) {
+            return;
         }
-        actions.remove(a);
+        for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+            IntList out = successors.get(s);
+            for (int i = 0; i < out.size(); i += 2) {
+                if (out.get(i) == id) {
+                    throw new DeletionOfAttachedActionException(a, TransitionSystemPart.TRANSITIONS);
+                }
+            }
+        }
+        actions.clear(id);
     }
 
     @Override
     public void removeAtomicProposition(P p) throws FVMException {
-        if(labels.values().stream().anyMatch(s -> s.contains(p))){
-            throw new DeletionOfAttachedAtomicPropositionException(p, TransitionSystemPart.LABELING_FUNCTION);
+        int id = propositionId(p);
+        if (id < 0) {
+            return;
+        }
+        for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+            if (labels.get(s).get(id)) {
+                throw new DeletionOfAttachedAtomicPropositionException(p, TransitionSystemPart.LABELING_FUNCTION);
+            }
         }
-        atomicPropositions.remove(p);
+        atomicPropositions.clear(id);
     }
 
     @Override
     public void removeInitialState(S s) {
-        iStates.remove(s);
+        int id = stateIds.id(s);
+        if (id >= 0) {
+            iStates.clear(id);
+        }
     }
 
     @Override
     public void removeLabel(S s, P l) {
-        labels.get(s).remove(l);
+        int id = stateIds.id(s);
+        int p = propositionIds.id(l);
+        if (id >= 0 && p >= 0) {
+            labels.get(id).clear(p);
+        }
     }
 
     @Override
     public void removeState(S s) throws FVMException {
-        if(iStates.contains(s)){
+        int id = stateId(s);
+        if (id < 0) {
+            return;
+        }
+        if(iStates.get(id)){
             throw new DeletionOfAttachedStateException(s, TransitionSystemPart.INITIAL_STATES);
-        } if(transitions.stream().anyMatch(t -> t.getFrom().equals(s) || t.getTo().equals(s))){
+        } if(!successors.get(id).isEmpty() || !predecessors.get(id).isEmpty()){
             throw new DeletionOfAttachedStateException(s, TransitionSystemPart.TRANSITIONS);
-        } if (labels.get(s).size() > 0) {
+        } if (!labels.get(id).isEmpty()) {
           throw new DeletionOfAttachedStateException(s, TransitionSystemPart.LABELING_FUNCTION);
         }
 
-        labels.remove(s);
-        states.remove(s);
+        states.clear(id);
     }
 
     @Override
     public void removeTransition(Transition<S, A> t) {
-        transitions.remove(t);
+        int from = stateId(t.getFrom());
+        int action = actionId(t.getAction());
+        int to = stateId(t.getTo());
+        if (from >= 0 && action >= 0 && to >= 0 && transitions.remove(from, action, to)) {
+            unindex(successors.get(from), action, to);
+            unindex(predecessors.get(to), action, from);
+        }
+    }
+
+    private void unindex(IntList edges, int action, int other) {
+        for (int i = 0; i < edges.size(); i += 2) {
+            if (edges.get(i) == action && edges.get(i + 1) == other) {
+                edges.removeBlock(i, 2);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int stateId(Object s) {
+        int id = stateIds.id(s);
+        return id >= 0 && states.get(id) ? id : -1;
+    }
+
+    @Override
+    public S state(int id) {
+        return stateIds.value(id);
+    }
+
+    /**
+     * @return an exclusive upper bound on state ids.
+     */
+    int stateIdBound() {
+        return stateIds.size();
+    }
+
+    @Override
+    public int[] initialStateIds() {
+        return iStates.stream().toArray();
+    }
+
+    @Override
+    public int[] successorIds(int id) {
+        IntList out = successors.get(id);
+        int[] result = new int[out.size() / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = out.get(2 * i + 1);
+        }
+        return result;
+    }
+
+    private int actionId(Object a) {
+        int id = actionIds.id(a);
+        return id >= 0 && actions.get(id) ? id : -1;
+    }
+
+    private int propositionId(Object p) {
+        int id = propositionIds.id(p);
+        return id >= 0 && atomicPropositions.get(id) ? id : -1;
+    }
+
+    @Override
+    public Set<P> label(int id) {
+        return new IdSet<>(propositionIds, labels.get(id));
+    }
+
+    /**
+     * Successors of {@code s}, in time proportional to its out-degree.
+     */
+    @Override
+    public Set<S> post(S s) {
+        return adjacent(successors, s, -1);
+    }
+
+    @Override
+    public Set<S> post(S s, A a) {
+        int action = actionId(a);
+        return action < 0 ? new HashSet<>() : adjacent(successors, s, action);
+    }
+
+    /**
+     * Predecessors of {@code s}, in time proportional to its in-degree.
+     */
+    @Override
+    public Set<S> pre(S s) {
+        return adjacent(predecessors, s, -1);
+    }
+
+    @Override
+    public Set<S> pre(S s, A a) {
+        int action = actionId(a);
+        return action < 0 ? new HashSet<>() : adjacent(predecessors, s, action);
+    }
+
+    @Override
+    public Map<A, Set<S>> postByAction(S s) {
+        Map<A, Set<S>> result = new HashMap<>();
+        int id = stateId(s);
+        if (id >= 0) {
+            IntList out = successors.get(id);
+            for (int i = 0; i < out.size(); i += 2) {
+                result.computeIfAbsent(actionIds.value(out.get(i)), a -> new HashSet<>()).add(stateIds.value(out.get(i + 1)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean hasUniqueSuccessorPerAction() {
+        for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+            IntList out = successors.get(s);
+            int[] outActions = new int[out.size() / 2];
+            for (int i = 0; i < outActions.length; i++) {
+                outActions[i] = out.get(2 * i);
+            }
+            Arrays.sort(outActions);
+            for (int i = 1; i < outActions.length; i++) {
+                if (outActions[i] == outActions[i - 1]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Breadth-first search over ids, with a bit set for the visited states.
+     */
+    @Override
+    public Set<S> reach() {
+        BitSet visited = new BitSet(stateIdBound());
+        IntList queue = new IntList();
+        for (int s = iStates.nextSetBit(0); s >= 0; s = iStates.nextSetBit(s + 1)) {
+            visited.set(s);
+            queue.add(s);
+        }
+        for (int head = 0; head < queue.size(); head++) {
+            IntList out = successors.get(queue.get(head));
+            for (int i = 1; i < out.size(); i += 2) {
+                int next = out.get(i);
+                if (!visited.get(next)) {
+                    visited.set(next);
+                    queue.add(next);
+                }
+            }
+        }
+
+        Set<S> result = new HashSet<>();
+        visited.stream().forEach(id -> result.add(stateIds.value(id)));
+        return result;
+    }
+
+    private Set<S> adjacent(List<IntList> index, S s, int action) {
+        Set<S> result = new HashSet<>();
+        int id = stateId(s);
+        if (id >= 0) {
+            IntList edges = index.get(id);
+            for (int i = 0; i < edges.size(); i += 2) {
+                if (action < 0 || edges.get(i) == action) {
+                    result.add(stateIds.value(edges.get(i + 1)));
+                }
+            }
+        }
+        return result;
     }
 
     @Override
@@ -174,23 +486,23 @@ public class TransitionSystemImpl<S, A, P> implements TransitionSystem<S, A, P>
         TransitionSystemImpl<?, ?, ?> that = (TransitionSystemImpl<?, ?, ?>) o;
 
         return name.equals(that.name) &&
-                states.equals(that.states) &&
-                iStates.equals(that.iStates) &&
-                actions.equals(that.actions) &&
-                transitions.equals(that.transitions) &&
-                atomicPropositions.equals(that.atomicPropositions) &&
-                labels.equals(that.labels);
+                getStates().equals(that.getStates()) &&
+                getInitialStates().equals(that.getInitialStates()) &&
+                getActions().equals(that.getActions()) &&
+                getTransitions().equals(that.getTransitions()) &&
+                getAtomicPropositions().equals(that.getAtomicPropositions()) &&
+                getLabelingFunction().equals(that.getLabelingFunction());
     }
 
     @Override
     public int hashCode() {
         int result = name.hashCode();
-        result = 31 * result + states.hashCode();
-        result = 31 * result + iStates.hashCode();
-        result = 31 * result + actions.hashCode();
-        result = 31 * result + transitions.hashCode();
-        result = 31 * result + atomicPropositions.hashCode();
-        result = 31 * result + labels.hashCode();
+        result = 31 * result + getStates().hashCode();
+        result = 31 * result + getInitialStates().hashCode();
+        result = 31 * result + getActions().hashCode();
+        result = 31 * result + getTransitions().hashCode();
+        result = 31 * result + getAtomicPropositions().hashCode();
+        result = 31 * result + getLabelingFunction().hashCode();
         return result;
     }
 }
@@ -0,0 +1,39 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The visited-state store of a search. Exact stores never confuse two states; probabilistic
+ * ones (see {@link BitstateVisitedSet}) may report an unseen state as seen, pruning part of the
+ * search, in exchange for a fixed memory footprint.
+ */
+interface VisitedSet<N> {
+
+    /**
+     * Marks {@code node} as visited.
+     *
+     * @return {@code true} iff it was not visited before (as far as this store can tell).
+     */
+    boolean add(N node);
+
+    /**
+     * @return the number of successful {@link #add}s.
+     */
+    long size();
+
+    static <N> VisitedSet<N> exact() {
+        Set<N> nodes = new HashSet<>();
+        return new VisitedSet<N>() {
+            @Override
+            public boolean add(N node) {
+                return nodes.add(node);
+            }
+
+            @Override
+            public long size() {
+                return nodes.size();
+            }
+        };
+    }
+}
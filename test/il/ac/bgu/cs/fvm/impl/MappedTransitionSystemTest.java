@@ -0,0 +1,114 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.exceptions.DeletionOfAttachedStateException;
+import il.ac.bgu.cs.fvm.transitionsystem.Transition;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappedTransitionSystemTest {
+    private Path directory;
+    private MappedTransitionSystem<String, String, String> ts;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("mapped-ts");
+        ts = new MappedTransitionSystem<>(directory);
+        ts.addAction("a");
+        ts.addAtomicProposition("p");
+        ts.addAtomicProposition("q");
+        ts.addState("s0");
+        ts.addState("s1");
+        ts.addInitialState("s0");
+        ts.addTransition(new Transition<>("s0", "a", "s1"));
+        ts.addToLabel("s0", "p");
+        ts.addToLabel("s1", "q");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        ts.close();
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void addingAnExistingStateKeepsItsLabelAndTransitions() {
+        ts.addState("s0");
+        ts.addState("s1");
+
+        assertEquals(Collections.singleton("p"), ts.getLabel("s0"));
+        assertEquals(Collections.singleton("q"), ts.getLabel("s1"));
+        assertEquals(Collections.singleton("s0"), ts.getInitialStates());
+        assertEquals(Collections.singleton(new Transition<>("s0", "a", "s1")), new HashSet<>(ts.getTransitions()));
+        assertEquals(2, ts.getStates().size());
+    }
+
+    @Test
+    public void readdedStateStartsUnlabelled() {
+        ts.addState("s2");
+        ts.addToLabel("s2", "p");
+        ts.removeLabel("s2", "p");
+        ts.removeState("s2");
+        assertFalse(ts.getStates().contains("s2"));
+
+        ts.addState("s2");
+        assertTrue(ts.getLabel("s2").isEmpty());
+        assertTrue(ts.post("s2").isEmpty());
+    }
+
+    @Test(expected = DeletionOfAttachedStateException.class)
+    public void labelledStateCannotBeRemoved() {
+        ts.removeState("s1");
+    }
+
+    @Test
+    public void transitionsAreIndexedBothWays() {
+        ts.addState("s2");
+        ts.addTransition(new Transition<>("s1", "a", "s2"));
+        ts.addTransition(new Transition<>("s1", "a", "s0"));
+        ts.addTransition(new Transition<>("s1", "a", "s0"));
+
+        assertEquals(3, ts.getTransitions().size());
+        assertEquals(new HashSet<>(Arrays.asList("s0", "s2")), ts.post("s1"));
+        assertEquals(Collections.singleton("s1"), ts.pre("s0"));
+        assertEquals(new HashSet<>(Arrays.asList("s0", "s1", "s2")), ts.reach());
+
+        ts.removeTransition(new Transition<>("s1", "a", "s0"));
+        assertEquals(Collections.singleton("s2"), ts.post("s1"));
+        assertTrue(ts.pre("s0").isEmpty());
+    }
+
+    @Test
+    public void statesLongerThan64KiBAreStored() {
+        char[] chars = new char[70_000];
+        Arrays.fill(chars, '\u00e9');
+        String location = new String(chars);
+        ts.addState(location);
+        ts.addTransition(new Transition<>("s1", "a", location));
+
+        assertTrue(ts.getStates().contains(location));
+        assertEquals(Collections.singleton(location), ts.post("s1"));
+    }
+
+    @Test
+    public void closeDeletesTheFiles() throws IOException {
+        ts.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+        // Reopen so tearDown has something to close.
+        ts = new MappedTransitionSystem<>(directory);
+    }
+}
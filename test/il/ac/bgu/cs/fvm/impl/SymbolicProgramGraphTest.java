@@ -0,0 +1,83 @@
+package il.ac.bgu.cs.fvm.impl;
+
+import il.ac.bgu.cs.fvm.programgraph.ActionDef;
+import il.ac.bgu.cs.fvm.programgraph.ConditionDef;
+import il.ac.bgu.cs.fvm.programgraph.PGTransition;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.fvm.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.fvm.programgraph.ProgramGraph;
+import il.ac.bgu.cs.fvm.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SymbolicProgramGraphTest {
+    private final FvmFacadeImpl fvm = new FvmFacadeImpl();
+    private final Set<ActionDef> actionDefs = Collections.singleton(new ParserBasedActDef());
+    private final Set<ConditionDef> conditionDefs = Collections.singleton(new ParserBasedCondDef());
+    private final Map<String, List<Integer>> domains = new LinkedHashMap<>();
+    private ProgramGraph<String, String> pg;
+
+    @Before
+    public void setUp() {
+        domains.put("x", Arrays.asList(0, 1));
+        domains.put("y", Arrays.asList(0, 1));
+        pg = fvm.createProgramGraph();
+        Arrays.asList("a", "b", "c", "d").forEach(pg::addLocation);
+        pg.addInitialLocation("a");
+        pg.addInitalization(Arrays.asList("x:=0", "y:=0"));
+        pg.addTransition(new PGTransition<>("a", "", "x:=1", "b"));
+        pg.addTransition(new PGTransition<>("b", "x==1", "y:=x", "c"));
+        pg.addTransition(new PGTransition<>("c", "y<1", "x:=0", "d"));
+    }
+
+    @Test
+    public void reachableStatesMatchTheExplicitTransitionSystem() {
+        SymbolicProgramGraph<String> symbolic = fvm.symbolicProgramGraph(pg, actionDefs, conditionDefs, domains);
+
+        assertEquals(fvm.transitionSystemFromProgramGraph(pg, actionDefs, conditionDefs).getStates().size(), symbolic.getReachableStateCount(), 0);
+        assertEquals(3, symbolic.getReachableStateCount(), 0);
+        assertEquals(3, symbolic.getIterations());
+        assertTrue(symbolic.isReachable("c"));
+        assertFalse(symbolic.isReachable("d"));
+    }
+
+    @Test
+    public void conditionsAreCheckedOverReachableStates() {
+        SymbolicProgramGraph<String> symbolic = fvm.symbolicProgramGraph(pg, actionDefs, conditionDefs, domains);
+
+        assertTrue(symbolic.canBeTrue("y==1"));
+        assertFalse(symbolic.isInvariant("y==1"));
+        assertTrue(symbolic.isInvariant("y<2"));
+        assertNull(symbolic.findReachableState("x<y"));
+
+        Map<String, Object> eval = new HashMap<>();
+        eval.put("x", 1);
+        eval.put("y", 1);
+        assertEquals(Pair.pair("c", eval), symbolic.findReachableState("y==1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void valuesOutsideTheDomainAreRejected() {
+        domains.put("x", Collections.singletonList(0));
+        fvm.symbolicProgramGraph(pg, actionDefs, conditionDefs, domains);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void uninitializedVariablesAreRejected() {
+        domains.put("z", Arrays.asList(0, 1));
+        fvm.symbolicProgramGraph(pg, actionDefs, conditionDefs, domains);
+    }
+}